@@ -45,6 +45,15 @@ public class Case {
  public List<Clue> getClues(){
      return clues;
  }
+ public void setClues(List<Clue> clues){
+     this.clues = clues;
+ }
+ public Difficulty getDifficulty(){
+     return difficulty;
+ }
+ public void setDifficulty(Difficulty difficulty){
+     this.difficulty = difficulty;
+ }
 
 
 
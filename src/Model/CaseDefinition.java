@@ -0,0 +1,210 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a case pack declares about one case: its rooms and exits, suspects and who is guilty,
+ * where each clue is hidden, the questions that can be asked and how suspects answer them.
+ *
+ * A definition never changes once it is parsed, so one copy can be shared by every game of that case.
+ * newCase() and buildRooms() hand out fresh mutable objects for a single game to play with.
+ */
+public final class CaseDefinition {
+
+    //A room and the clues hidden in it
+    public static final class RoomSpec {
+        private final String name;
+        private final String description;
+        private final List<String> clues;
+
+        public RoomSpec(String name, String description, List<String> clues){
+            this.name = name;
+            this.description = description;
+            this.clues = Collections.unmodifiableList(new ArrayList<>(clues));
+        }
+
+        public String getName(){ return name; }
+        public String getDescription(){ return description; }
+        public List<String> getClues(){ return clues; }
+    }
+
+    //A one way exit from a room, the pack loader adds the way back
+    public static final class Exit {
+        private final String from;
+        private final Direction direction;
+        private final String to;
+
+        public Exit(String from, Direction direction, String to){
+            this.from = from;
+            this.direction = direction;
+            this.to = to;
+        }
+
+        public String getFrom(){ return from; }
+        public Direction getDirection(){ return direction; }
+        public String getTo(){ return to; }
+    }
+
+    //A suspect as declared in the pack
+    public static final class SuspectSpec {
+        private final String name;
+        private final String description;
+        private final boolean guilty;
+
+        public SuspectSpec(String name, String description, boolean guilty){
+            this.name = name;
+            this.description = description;
+            this.guilty = guilty;
+        }
+
+        public String getName(){ return name; }
+        public String getDescription(){ return description; }
+        public boolean isGuilty(){ return guilty; }
+    }
+
+    //A suspect's answer when a question contains one of the keywords
+    //The scope says who answers this way: a suspect's name, guilty, innocent or any.
+    //A rule with no keywords is the answer when nothing else matches.
+    public static final class ResponseRule {
+        private final String scope;
+        private final List<String> keywords;
+        private final String response;
+
+        public ResponseRule(String scope, List<String> keywords, String response){
+            this.scope = scope;
+            this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+            this.response = response;
+        }
+
+        public String getScope(){ return scope; }
+        public List<String> getKeywords(){ return keywords; }
+        public String getResponse(){ return response; }
+        public boolean isDefault(){ return keywords.isEmpty(); }
+    }
+
+    private final String title;
+    private final Difficulty difficulty;
+    private final String startRoom;
+    private final String crimeScene;
+    private final List<RoomSpec> rooms;
+    private final List<Exit> exits;
+    private final List<SuspectSpec> suspects;
+    private final List<String> questions;
+    private final ResponseRules responses;
+    private final ShipGraph graph;
+    //Clues are numbered room by room in declaration order, so room r holds ids clueStart[r] .. clueStart[r + 1] - 1
+    private final int[] clueStart;
+    private final Map<String, Integer> clueIds;
+    private final Map<String, Integer> suspectIds;
+    private final Map<String, Integer> questionIds;
+
+    //constructor, compiles the response rules and ship graph so every game of the case shares them
+    public CaseDefinition(String title, Difficulty difficulty, String startRoom, String crimeScene,
+                          List<RoomSpec> rooms, List<Exit> exits, List<SuspectSpec> suspects, List<String> questions,
+                          List<ResponseRule> responseRules){
+        this.title = title;
+        this.difficulty = difficulty;
+        this.startRoom = startRoom;
+        this.crimeScene = crimeScene;
+        this.rooms = Collections.unmodifiableList(new ArrayList<>(rooms));
+        this.exits = Collections.unmodifiableList(new ArrayList<>(exits));
+        this.suspects = Collections.unmodifiableList(new ArrayList<>(suspects));
+        this.questions = Collections.unmodifiableList(new ArrayList<>(questions));
+        this.responses = new ResponseRules(responseRules);
+
+        List<String> roomNames = new ArrayList<>(rooms.size());
+        for (RoomSpec room : rooms) {
+            roomNames.add(room.getName());
+        }
+        this.graph = new ShipGraph(roomNames, exits, startRoom);
+
+        this.clueStart = new int[rooms.size() + 1];
+        this.clueIds = new HashMap<>();
+        int id = 0;
+        for (int r = 0; r < rooms.size(); r++) {
+            clueStart[r] = id;
+            for (String clue : rooms.get(r).getClues()) {
+                clueIds.putIfAbsent(clue, id++);
+            }
+        }
+        clueStart[rooms.size()] = id;
+
+        this.suspectIds = new HashMap<>();
+        for (int s = 0; s < suspects.size(); s++) {
+            suspectIds.putIfAbsent(suspects.get(s).getName(), s);
+        }
+
+        Map<String, Integer> questionIds = new HashMap<>();
+        for (int q = 0; q < this.questions.size(); q++) {
+            questionIds.putIfAbsent(this.questions.get(q), q);
+        }
+        this.questionIds = Collections.unmodifiableMap(questionIds);
+    }
+
+    //getters
+    public String getTitle(){ return title; }
+    public Difficulty getDifficulty(){ return difficulty; }
+    public String getStartRoom(){ return startRoom; }
+    public String getCrimeScene(){ return crimeScene; }
+    public List<RoomSpec> getRooms(){ return rooms; }
+    public List<Exit> getExits(){ return exits; }
+    public List<SuspectSpec> getSuspects(){ return suspects; }
+
+    //Questions declared by the pack, empty if it uses the shared question list
+    public List<String> getQuestions(){ return questions; }
+
+    //Each of the pack's questions to its position in getQuestions()
+    public Map<String, Integer> getQuestionIds(){ return questionIds; }
+
+    //How suspects answer questions in this case
+    public ResponseRules getResponses(){ return responses; }
+
+    //The rooms and exits indexed for navigation
+    public ShipGraph getGraph(){ return graph; }
+
+    public int getClueCount(){ return clueStart[rooms.size()]; }
+
+    //The first clue id in a room (by graph id), the room's clues run up to getClueEnd
+    public int getFirstClueId(int room){ return clueStart[room]; }
+    public int getClueEnd(int room){ return clueStart[room + 1]; }
+
+    //A suspect's position in the case, or -1 if there is no suspect by that name
+    public int getSuspectId(String name){
+        Integer id = suspectIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    //The id of a clue by its description, or -1 if the case has no such clue
+    public int getClueId(String description){
+        Integer id = clueIds.get(description);
+        return id == null ? -1 : id;
+    }
+
+    //Creates a fresh case for a new game, with its own suspects and no clues found yet
+    public Case newCase(){
+        List<Suspect> caseSuspects = new ArrayList<>(suspects.size());
+        for (SuspectSpec s : suspects) {
+            caseSuspects.add(new Suspect(s.getName(), s.getDescription(), s.isGuilty()));
+        }
+        return new Case(title, crimeScene, caseSuspects, new ArrayList<>(), difficulty);
+    }
+
+    //Creates the rooms for a new game with their clues placed, the exits live in the ShipGraph
+    //Rooms keep the order they were declared in
+    public Map<String, Room> buildRooms(){
+        Map<String, Room> built = new LinkedHashMap<>();
+        for (RoomSpec spec : rooms) {
+            Room room = new Room(spec.getName(), spec.getDescription());
+            for (String clue : spec.getClues()) {
+                room.addClue(new Clue(clue, false));
+            }
+            built.put(spec.getName(), room);
+        }
+        return built;
+    }
+}
@@ -0,0 +1,114 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which clues of a game have been discovered, kept up to date as they are found
+ *
+ * Clues are numbered by their case definition. A bitset answers "is this clue found?" and a log keeps
+ * the ids in the order they were found, so listing, saving and restoring discoveries only touch the
+ * clues that were found, however many the case has. The log also remembers how far the last save got,
+ * which is what the next incremental save writes.
+ */
+public class ClueIndex {
+    private final CaseDefinition definition;
+    private final Clue[] clues;
+    private final long[] found;
+    private int[] log;
+    private int count;
+    private int savedCount;
+
+    //Indexes the clues of rooms built from the definition, clue ids follow the definition's room order
+    public ClueIndex(CaseDefinition definition, Map<String, Room> rooms){
+        this.definition = definition;
+        this.clues = new Clue[definition.getClueCount()];
+        int id = 0;
+        for (CaseDefinition.RoomSpec spec : definition.getRooms()) {
+            for (Clue clue : rooms.get(spec.getName()).getClues()) {
+                clues[id++] = clue;
+            }
+        }
+        this.found = new long[(clues.length + 63) >>> 6];
+        this.log = new int[Math.min(clues.length, 16)];
+    }
+
+    //Marks a clue found, returns false if it already was
+    public boolean discover(int clueId){
+        long bit = 1L << clueId;
+        int word = clueId >>> 6;
+        if ((found[word] & bit) != 0) {
+            return false;
+        }
+        found[word] |= bit;
+        if (count == log.length) {
+            log = Arrays.copyOf(log, Math.max(16, count * 2));
+        }
+        log[count++] = clueId;
+        clues[clueId].setDiscovered(true);
+        return true;
+    }
+
+    //Marks a clue found by its description, returns false if it already was or isn't in this case
+    public boolean discover(String description){
+        int clueId = definition.getClueId(description);
+        return clueId >= 0 && discover(clueId);
+    }
+
+    public boolean isDiscovered(int clueId){
+        return (found[clueId >>> 6] & (1L << clueId)) != 0;
+    }
+
+    //Number of clues in the case
+    public int getClueCount(){
+        return clues.length;
+    }
+
+    //Number of clues found so far
+    public int getDiscoveredCount(){
+        return count;
+    }
+
+    //The id of the i-th clue found
+    public int getDiscoveredId(int i){
+        return log[i];
+    }
+
+    public Clue getClue(int clueId){
+        return clues[clueId];
+    }
+
+    //Every clue found, in the order they were found
+    public List<Clue> getDiscovered(){
+        return slice(0);
+    }
+
+    //Clues found since the last save
+    public List<Clue> getChangesSinceSave(){
+        return slice(savedCount);
+    }
+
+    public void markSaved(){
+        savedCount = count;
+    }
+
+    //Forgets every discovery
+    public void clear(){
+        for (int i = 0; i < count; i++) {
+            clues[log[i]].setDiscovered(false);
+        }
+        Arrays.fill(found, 0L);
+        count = 0;
+        savedCount = 0;
+    }
+
+    private List<Clue> slice(int from){
+        List<Clue> result = new ArrayList<>(count - from);
+        for (int i = from; i < count; i++) {
+            result.add(clues[log[i]]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package Model;
+
+//Compass directions used for the exits between rooms
+public enum Direction {
+
+    NORTH("North"),
+    SOUTH("South"),
+    EAST("East"),
+    WEST("West");
+
+    private final String displayName;
+
+    Direction(String displayName){
+        this.displayName = displayName;
+    }
+    public String getDisplayName(){
+        return displayName;
+    }
+
+    //The direction that leads back the way you came
+    public Direction opposite(){
+        switch (this) {
+            case NORTH: return SOUTH;
+            case SOUTH: return NORTH;
+            case EAST: return WEST;
+            default: return EAST;
+        }
+    }
+
+    //Parses a direction name in any case, returns null if it isn't one
+    public static Direction parse(String name){
+        for (Direction d : values()) {
+            if (d.name().equalsIgnoreCase(name.trim())) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString(){
+        return displayName;
+    }
+}
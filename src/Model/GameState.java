@@ -9,6 +9,8 @@ public class GameState {
     private Case currentCase;
     private Map<String, Boolean> questionedSuspects;
     private List<Clue> discoveredClues;
+    private long journalSeq;
+    private byte[] progress;
 
     //constructor
     public GameState(String playerName, String currentRoom, Case currentCase, Map<String, Boolean>questionedSuspects,
@@ -20,10 +22,28 @@ public class GameState {
         this.discoveredClues = discoveredClues;
     }
 
+    public GameState(String playerName, String currentRoom, Case currentCase, Map<String, Boolean>questionedSuspects,
+                     List<Clue> discoveredClues, long journalSeq){
+        this(playerName, currentRoom, currentCase, questionedSuspects, discoveredClues);
+        this.journalSeq = journalSeq;
+    }
+
+    public GameState(String playerName, String currentRoom, Case currentCase, Map<String, Boolean>questionedSuspects,
+                     List<Clue> discoveredClues, long journalSeq, byte[] progress){
+        this(playerName, currentRoom, currentCase, questionedSuspects, discoveredClues, journalSeq);
+        this.progress = progress;
+    }
+
     //getters and setters
     public String getCurrentRoom() {return currentRoom;}
     public Case getCurrentCase() { return currentCase; }
     public Map<String, Boolean>getQuestionedSuspects() {return questionedSuspects;}
     public List<Clue>getDiscoveredClues() {return discoveredClues;}
 
+    //The last journal record included in the save, 0 if none
+    public long getJournalSeq() {return journalSeq;}
+
+    //The SessionProgress snapshot taken with the save, null for saves made before there were snapshots
+    public byte[] getProgress() {return progress;}
+
 }
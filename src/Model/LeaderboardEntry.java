@@ -0,0 +1,26 @@
+package Model;
+
+//One row of the leaderboard
+//Rank is 1 + the number of players with a strictly higher score, so tied players share a rank
+public class LeaderboardEntry {
+    private final String playerName;
+    private final int score;
+    private final int rank;
+
+    //constructor
+    public LeaderboardEntry(String playerName, int score, int rank){
+        this.playerName = playerName;
+        this.score = score;
+        this.rank = rank;
+    }
+
+    //getters
+    public String getPlayerName() { return playerName; }
+    public int getScore() { return score; }
+    public int getRank() { return rank; }
+
+    @Override
+    public String toString(){
+        return "#" + rank + " " + playerName + " (" + score + ")";
+    }
+}
@@ -0,0 +1,125 @@
+package Model;
+
+import util.KeywordMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A case's response rules compiled for fast lookup
+ *
+ * All keywords of all rules go into one KeywordMatcher, so a question is scanned once however many
+ * rules there are. Of the rules whose keywords appear, the one aimed most closely at the suspect wins
+ * (their own name, then their guilt, then any), and earlier rules win ties, the same as an if/else chain.
+ * If no keyword matches, the closest default rule answers. Answers are cached per suspect and question.
+ */
+public final class ResponseRules {
+
+    //Said when a case has no rule that fits at all
+    public static final String FALLBACK = "I don't have information about that.";
+
+    private static final int CACHE_LIMIT = 4096;
+
+    //How closely a rule's scope fits a suspect, higher wins, NO_MATCH means it doesn't apply
+    private static final int NO_MATCH = -1;
+    private static final int ANY = 0;
+    private static final int GUILT = 1;
+    private static final int SUSPECT = 2;
+
+    //What each rule's scope names, worked out once so matching doesn't compare strings
+    private static final int SCOPE_ANY = 0;
+    private static final int SCOPE_GUILTY = 1;
+    private static final int SCOPE_INNOCENT = 2;
+    private static final int SCOPE_NAMED = 3;
+
+    private final List<CaseDefinition.ResponseRule> rules;
+    private final int[] scopes;
+    private final KeywordMatcher matcher;
+    //keyword index -> the rule it belongs to
+    private final int[] keywordRule;
+    private final List<Integer> defaults = new ArrayList<>();
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
+    public ResponseRules(List<CaseDefinition.ResponseRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+
+        this.scopes = new int[rules.size()];
+        List<String> keywords = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int r = 0; r < rules.size(); r++) {
+            CaseDefinition.ResponseRule rule = rules.get(r);
+            scopes[r] = scopeOf(rule.getScope());
+            if (rule.isDefault()) {
+                defaults.add(r);
+            }
+            for (String keyword : rule.getKeywords()) {
+                keywords.add(keyword);
+                owners.add(r);
+            }
+        }
+        this.matcher = new KeywordMatcher(keywords);
+        this.keywordRule = owners.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    //The answer a suspect gives to a question
+    public String respond(String suspectName, boolean guilty, String question) {
+        String key = suspectName + (guilty ? "\u0001" : "\u0000") + question;
+        String cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        //best[0] is the winning fit, best[1] the winning rule
+        int[] best = {NO_MATCH, Integer.MAX_VALUE};
+        matcher.match(question, keyword -> {
+            int rule = keywordRule[keyword];
+            int fit = fit(rule, suspectName, guilty);
+            if (fit > best[0] || (fit == best[0] && fit != NO_MATCH && rule < best[1])) {
+                best[0] = fit;
+                best[1] = rule;
+            }
+        });
+        if (best[0] == NO_MATCH) {
+            for (int rule : defaults) {
+                int fit = fit(rule, suspectName, guilty);
+                if (fit > best[0]) {
+                    best[0] = fit;
+                    best[1] = rule;
+                }
+            }
+        }
+
+        String response = best[0] == NO_MATCH ? FALLBACK : rules.get(best[1]).getResponse();
+        //Free text questions could grow the cache forever, so it stops taking entries when full
+        if (cache.size() < CACHE_LIMIT) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    private int fit(int rule, String suspectName, boolean guilty) {
+        switch (scopes[rule]) {
+            case SCOPE_ANY:
+                return ANY;
+            case SCOPE_GUILTY:
+                return guilty ? GUILT : NO_MATCH;
+            case SCOPE_INNOCENT:
+                return guilty ? NO_MATCH : GUILT;
+            default:
+                return rules.get(rule).getScope().equalsIgnoreCase(suspectName) ? SUSPECT : NO_MATCH;
+        }
+    }
+
+    private static int scopeOf(String scope) {
+        if (scope.equalsIgnoreCase("any")) return SCOPE_ANY;
+        if (scope.equalsIgnoreCase("guilty")) return SCOPE_GUILTY;
+        if (scope.equalsIgnoreCase("innocent")) return SCOPE_INNOCENT;
+        return SCOPE_NAMED;
+    }
+}
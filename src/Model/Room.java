@@ -7,14 +7,12 @@ public class Room {
     private String name;
     private String description;
     private List<Clue> clues;
-    private List<String> connectedRooms;
 
 //Constructor
     public Room(String name, String description){
         this.name = name;
         this.description = description;
         this.clues = new ArrayList<>();
-        this.connectedRooms = new ArrayList<>();
     }
 
     //getters and setters
@@ -27,14 +25,8 @@ public class Room {
     public List<Clue> getClues(){
         return clues;
     }
-    public List<String> getConnectedRooms(){
-        return connectedRooms;
-    }
 
     public void addClue(Clue clue){
         clues.add(clue);
     }
-    public void connectRoom(String roomName){
-        connectedRooms.add(roomName);
-    }
 }
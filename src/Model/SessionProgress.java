@@ -0,0 +1,164 @@
+package Model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A player's progress through one case, stored as bitsets
+ *
+ * Suspects and questions are referred to by their position in the case (suspect ids come from the
+ * CaseDefinition, question ids from the case's question list). Questioned suspects and asked questions
+ * are bits in long arrays, one bit per suspect and one per suspect and question pair, and discovered
+ * clues live in the session's ClueIndex. Checks and updates don't allocate, and a session's progress
+ * costs a few words instead of maps of strings.
+ *
+ * snapshot() writes the whole thing into a small byte array that restore() reads back. Every save
+ * stores one with the player's game state, so loading and recovery get back the questions asked too.
+ */
+public class SessionProgress {
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'P';
+    public static final int VERSION = 1;
+
+    private final int suspectCount;
+    private final int questionCount;
+    private final long[] questioned;
+    //suspects questioned since the last save
+    private final long[] questionedChanged;
+    //bit suspect * questionCount + question
+    private final long[] asked;
+    private final ClueIndex clues;
+
+    public SessionProgress(int suspectCount, int questionCount, ClueIndex clues){
+        this.suspectCount = suspectCount;
+        this.questionCount = questionCount;
+        this.questioned = new long[words(suspectCount)];
+        this.questionedChanged = new long[words(suspectCount)];
+        this.asked = new long[words(suspectCount * questionCount)];
+        this.clues = clues;
+    }
+
+    private static int words(int bits){
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean get(long[] bits, int index){
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    //Sets a bit, returns false if it was already set
+    private static boolean set(long[] bits, int index){
+        long mask = 1L << index;
+        int word = index >>> 6;
+        if ((bits[word] & mask) != 0) return false;
+        bits[word] |= mask;
+        return true;
+    }
+
+    public int getSuspectCount(){ return suspectCount; }
+    public int getQuestionCount(){ return questionCount; }
+    public ClueIndex getClues(){ return clues; }
+
+    //Marks a suspect questioned, returns false if they already were
+    public boolean markQuestioned(int suspect){
+        if (!set(questioned, suspect)) return false;
+        set(questionedChanged, suspect);
+        return true;
+    }
+
+    public boolean isQuestioned(int suspect){
+        return get(questioned, suspect);
+    }
+
+    //True if the suspect was questioned since the last save
+    public boolean isQuestionedChanged(int suspect){
+        return get(questionedChanged, suspect);
+    }
+
+    //Marks a question asked of a suspect, returns false if it already was
+    public boolean markAsked(int suspect, int question){
+        return set(asked, suspect * questionCount + question);
+    }
+
+    public boolean isAsked(int suspect, int question){
+        return get(asked, suspect * questionCount + question);
+    }
+
+    //Number of questions already asked of a suspect
+    public int getAskedCount(int suspect){
+        int count = 0;
+        int base = suspect * questionCount;
+        for (int q = 0; q < questionCount; q++) {
+            if (get(asked, base + q)) count++;
+        }
+        return count;
+    }
+
+    //Forgets what changed, called once the changes are handed to a save
+    public void markSaved(){
+        Arrays.fill(questionedChanged, 0L);
+        clues.markSaved();
+    }
+
+    //Writes the progress as: magic, version, suspect/question/clue counts,
+    //the questioned and asked bitsets, then discovered clue ids in the order they were found
+    public byte[] snapshot(){
+        int found = clues.getDiscoveredCount();
+        ByteBuffer out = ByteBuffer.allocate(3 + 12 + 8 * (questioned.length + asked.length) + 4 + 4 * found);
+        out.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION);
+        out.putInt(suspectCount).putInt(questionCount).putInt(clues.getClueCount());
+        for (long word : questioned) out.putLong(word);
+        for (long word : asked) out.putLong(word);
+        out.putInt(found);
+        for (int i = 0; i < found; i++) {
+            out.putInt(clues.getDiscoveredId(i));
+        }
+        return out.array();
+    }
+
+    //Replaces this progress with a snapshot taken from the same case
+    //Restored progress counts as saved. Throws IllegalArgumentException, leaving the progress
+    //untouched, if the snapshot is damaged or from another case.
+    public void restore(byte[] snapshot){
+        ByteBuffer in = ByteBuffer.wrap(snapshot);
+        long[] newQuestioned = new long[questioned.length];
+        long[] newAsked = new long[asked.length];
+        int[] found;
+        try {
+            if (in.get() != MAGIC_0 || in.get() != MAGIC_1) {
+                throw new IllegalArgumentException("Not a progress snapshot");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported progress snapshot version " + version);
+            }
+            if (in.getInt() != suspectCount || in.getInt() != questionCount || in.getInt() != clues.getClueCount()) {
+                throw new IllegalArgumentException("Progress snapshot is from a different case");
+            }
+            for (int i = 0; i < newQuestioned.length; i++) newQuestioned[i] = in.getLong();
+            for (int i = 0; i < newAsked.length; i++) newAsked[i] = in.getLong();
+            int count = in.getInt();
+            if (count < 0 || count > clues.getClueCount()) {
+                throw new IllegalArgumentException("Progress snapshot has a bad clue count");
+            }
+            found = new int[count];
+            for (int i = 0; i < count; i++) {
+                found[i] = in.getInt();
+                if (found[i] < 0 || found[i] >= clues.getClueCount()) {
+                    throw new IllegalArgumentException("Progress snapshot has a bad clue id");
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Progress snapshot is truncated", e);
+        }
+
+        System.arraycopy(newQuestioned, 0, questioned, 0, questioned.length);
+        System.arraycopy(newAsked, 0, asked, 0, asked.length);
+        clues.clear();
+        for (int clueId : found) {
+            clues.discover(clueId);
+        }
+        markSaved();
+    }
+}
@@ -0,0 +1,198 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rooms of a ship and the exits between them, indexed for navigation
+ *
+ * Rooms get integer ids in the order they were declared. Exits are a flat array with one slot per
+ * room and direction, so "what is north of here" is a single array read, and the rooms leading into
+ * each room are kept as adjacency arrays for path finding.
+ *
+ * Routes come from breadth first searches run backwards from a target. One search gives every room's
+ * next step and distance towards that target, so after it has run each step of a route is O(1).
+ * The start room's search runs up front, others run the first time they are asked for and a bounded
+ * number of them are kept.
+ */
+public final class ShipGraph {
+
+    public static final int NO_ROOM = -1;
+    private static final int DIRECTIONS = Direction.values().length;
+    private static final int ROUTE_CACHE_SIZE = 64;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    //exits[room * DIRECTIONS + direction.ordinal()] is the room that way, or NO_ROOM
+    private final int[] exits;
+    //Rooms with an exit into room r are incoming[incomingStart[r] .. incomingStart[r + 1])
+    private final int[] incomingStart;
+    private final int[] incoming;
+    private final int startRoom;
+    private final Routes toStart;
+    private final Map<Integer, Routes> routeCache;
+
+    //Next step and distance from every room towards one target
+    private static final class Routes {
+        final int[] nextHop;
+        final int[] distance;
+
+        Routes(int[] nextHop, int[] distance) {
+            this.nextHop = nextHop;
+            this.distance = distance;
+        }
+    }
+
+    public ShipGraph(List<String> roomNames, List<CaseDefinition.Exit> exitList, String startRoomName) {
+        int n = roomNames.size();
+        this.names = roomNames.toArray(new String[0]);
+        this.ids = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            ids.put(names[i], i);
+        }
+
+        this.exits = new int[n * DIRECTIONS];
+        Arrays.fill(exits, NO_ROOM);
+        for (CaseDefinition.Exit exit : exitList) {
+            int from = ids.get(exit.getFrom());
+            exits[from * DIRECTIONS + exit.getDirection().ordinal()] = ids.get(exit.getTo());
+        }
+
+        //Counting sort the exits by target room
+        this.incomingStart = new int[n + 1];
+        for (int to : exits) {
+            if (to != NO_ROOM) incomingStart[to + 1]++;
+        }
+        for (int r = 0; r < n; r++) {
+            incomingStart[r + 1] += incomingStart[r];
+        }
+        this.incoming = new int[incomingStart[n]];
+        int[] fill = Arrays.copyOf(incomingStart, n);
+        for (int from = 0; from < n; from++) {
+            for (int d = 0; d < DIRECTIONS; d++) {
+                int to = exits[from * DIRECTIONS + d];
+                if (to != NO_ROOM) {
+                    incoming[fill[to]++] = from;
+                }
+            }
+        }
+
+        this.startRoom = ids.get(startRoomName);
+        this.toStart = search(startRoom);
+        this.routeCache = Collections.synchronizedMap(new LinkedHashMap<Integer, Routes>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Routes> eldest) {
+                return size() > ROUTE_CACHE_SIZE;
+            }
+        });
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    //The id of a room, or NO_ROOM if the ship has no room by that name
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? NO_ROOM : id;
+    }
+
+    public String nameOf(int room) {
+        return names[room];
+    }
+
+    public int getStartRoom() {
+        return startRoom;
+    }
+
+    //The room reached by going one way from a room, or NO_ROOM
+    public int exit(int room, Direction direction) {
+        return exits[room * DIRECTIONS + direction.ordinal()];
+    }
+
+    //The room reached by going one way from a room, or null
+    public String exit(String room, Direction direction) {
+        int from = idOf(room);
+        if (from == NO_ROOM) return null;
+        int to = exit(from, direction);
+        return to == NO_ROOM ? null : names[to];
+    }
+
+    //True if one of the room's exits leads straight to the other room
+    public boolean isAdjacent(int from, int to) {
+        int base = from * DIRECTIONS;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            if (exits[base + d] == to) return true;
+        }
+        return false;
+    }
+
+    //The first room to walk into on a shortest route, or NO_ROOM if the target can't be reached
+    public int nextStep(int from, int to) {
+        return from == to ? to : routesTo(to).nextHop[from];
+    }
+
+    //Number of moves on a shortest route, or -1 if the target can't be reached
+    public int distance(int from, int to) {
+        return routesTo(to).distance[from];
+    }
+
+    //Every room on a shortest route, starting with from and ending with to, or empty if there is none
+    public List<String> route(String from, String to) {
+        int a = idOf(from);
+        int b = idOf(to);
+        List<String> path = new ArrayList<>();
+        if (a == NO_ROOM || b == NO_ROOM) return path;
+
+        Routes routes = routesTo(b);
+        if (routes.distance[a] < 0) return path;
+        for (int room = a; room != b; room = routes.nextHop[room]) {
+            path.add(names[room]);
+        }
+        path.add(names[b]);
+        return path;
+    }
+
+    private Routes routesTo(int target) {
+        if (target == startRoom) return toStart;
+        Routes routes = routeCache.get(target);
+        if (routes == null) {
+            routes = search(target);
+            routeCache.put(target, routes);
+        }
+        return routes;
+    }
+
+    //Breadth first search from the target over the exits reversed
+    private Routes search(int target) {
+        int n = names.length;
+        int[] nextHop = new int[n];
+        int[] distance = new int[n];
+        Arrays.fill(nextHop, NO_ROOM);
+        Arrays.fill(distance, -1);
+
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = target;
+        distance[target] = 0;
+        nextHop[target] = target;
+        while (head < tail) {
+            int room = queue[head++];
+            for (int i = incomingStart[room]; i < incomingStart[room + 1]; i++) {
+                int from = incoming[i];
+                if (distance[from] < 0) {
+                    distance[from] = distance[room] + 1;
+                    nextHop[from] = room;
+                    queue[tail++] = from;
+                }
+            }
+        }
+        return new Routes(nextHop, distance);
+    }
+}
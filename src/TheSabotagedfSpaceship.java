@@ -1,4 +1,6 @@
 import game.GameController;
+import javax.swing.SwingUtilities;
+import util.BootTimer;
 
 /**
  * The Sabotaged Spaceship - Main Game Launcher
@@ -16,15 +18,19 @@ public class TheSabotagedfSpaceship {
 /**
  * Main entry point for the application
  *
- * Creates the game controller and starts a new case scenario.
+ * Creates the game controller and starts a new case scenario, or recovers an unsaved one.
  * All game operations are managed through the GameController instance.
+ * The window comes up first while the database and case files load in the background,
+ * and the time each step took is logged once the first case is on screen.
  */
 
  public static void main(String[] args) {
      //Initialize the game controller which handles all game logic
-        GameController controller = new GameController();
+        BootTimer boot = new BootTimer();
+        GameController controller = new GameController(boot);
 
         //Start the first/new case scenario
-        controller.startNewCase();
+        //Starting talks to the window, so it happens on the event thread
+        SwingUtilities.invokeLater(controller::start);
     }
 }
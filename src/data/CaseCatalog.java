@@ -0,0 +1,115 @@
+package data;
+
+import Model.Difficulty;
+import util.Log;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+//Index of the case packs in a directory
+//Only the header of each pack is read up front. The rest of a pack (rooms, suspects, clues) is parsed
+//when that case is played (see ContentRepository), so startup only pays for a few lines per case
+//however big the packs are.
+public class CaseCatalog {
+
+    public static final String EXTENSION = ".case";
+
+    //The header of one case pack
+    public static final class Entry {
+        private final String id;
+        private final String title;
+        private final Difficulty difficulty;
+        private final String startRoom;
+        private final Path path;
+
+        Entry(String id, String title, Difficulty difficulty, String startRoom, Path path) {
+            this.id = id;
+            this.title = title;
+            this.difficulty = difficulty;
+            this.startRoom = startRoom;
+            this.path = path;
+        }
+
+        public String getId() { return id; }
+        public String getTitle() { return title; }
+        public Difficulty getDifficulty() { return difficulty; }
+        public String getStartRoom() { return startRoom; }
+        public Path getPath() { return path; }
+
+        @Override
+        public String toString() {
+            return title + " (" + difficulty + ")";
+        }
+    }
+
+    private final Path directory;
+    private final List<Entry> entries;
+
+    //Reads the header of every pack in the directory, sorted by file name
+    //A pack with a broken header is logged and left out rather than stopping the game
+    public CaseCatalog(Path directory) {
+        this.directory = directory;
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            Log.warn("CASE", "Can't read case directory {}: {}", directory, e);
+        }
+        files.sort(Comparator.comparing(p -> p.getFileName().toString()));
+
+        List<Entry> found = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try {
+                found.add(CasePackReader.readHeader(file));
+            } catch (IOException e) {
+                Log.warn("CASE", "Skipping case pack {}", e.getMessage());
+            }
+        }
+        this.entries = Collections.unmodifiableList(found);
+        Log.debug("CASE", "Indexed {} case packs in {}", entries.size(), directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    //The first case in the catalog, or null if there are none
+    public Entry getDefault() {
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    public Entry findById(String id) {
+        for (Entry entry : entries) {
+            if (entry.getId().equals(id)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    //Saved games only remember the case title, so this is how a load finds its pack again
+    public Entry findByTitle(String title) {
+        for (Entry entry : entries) {
+            if (entry.getTitle().equals(title)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
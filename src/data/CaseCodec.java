@@ -0,0 +1,302 @@
+package data;
+
+import Model.Case;
+import Model.Clue;
+import Model.Difficulty;
+import Model.Suspect;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding for saved cases, stored in the saved_cases.case_data BLOB
+ *
+ * Layout: two magic bytes, a format version byte, then a list of fields.
+ * Every field is a tag byte, a varint length and that many payload bytes, so a reader
+ * skips tags it doesn't know and older builds can read rows written by newer ones.
+ * Suspects and clues are nested records using the same field layout.
+ * Strings are UTF-8 and decoded straight from the buffer.
+ */
+public final class CaseCodec {
+    private static final byte MAGIC_0 = (byte) 0xCA;
+    private static final byte MAGIC_1 = (byte) 0x5E;
+
+    //Bump only for changes old readers can't skip over, new fields just get a new tag
+    public static final int VERSION = 1;
+
+    //Case fields
+    private static final int CASE_TITLE = 1;
+    private static final int CASE_CRIME_SCENE = 2;
+    private static final int CASE_DIFFICULTY = 3;
+    private static final int CASE_SUSPECT = 4;
+    private static final int CASE_CLUE = 5;
+
+    //Suspect fields
+    private static final int SUSPECT_NAME = 1;
+    private static final int SUSPECT_DESCRIPTION = 2;
+    private static final int SUSPECT_GUILTY = 3;
+
+    //Clue fields
+    private static final int CLUE_DESCRIPTION = 1;
+    private static final int CLUE_DISCOVERED = 2;
+
+    private CaseCodec() {
+    }
+
+    //True if the bytes start with this codec's header
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= 3 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    //Encodes a case, its suspects and its clues
+    public static byte[] encode(Case c) {
+        Buffer out = new Buffer(256);
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+
+        out.writeString(CASE_TITLE, c.getTitle());
+        out.writeString(CASE_CRIME_SCENE, c.getCrimeScene());
+        if (c.getDifficulty() != null) {
+            out.writeString(CASE_DIFFICULTY, c.getDifficulty().name());
+        }
+
+        Buffer nested = new Buffer(64);
+        for (Suspect s : c.getSuspects()) {
+            nested.reset();
+            nested.writeString(SUSPECT_NAME, s.getName());
+            nested.writeString(SUSPECT_DESCRIPTION, s.getDescription());
+            nested.writeBoolean(SUSPECT_GUILTY, s.isGuilty());
+            out.writeNested(CASE_SUSPECT, nested);
+        }
+        if (c.getClues() != null) {
+            for (Clue clue : c.getClues()) {
+                nested.reset();
+                nested.writeString(CLUE_DESCRIPTION, clue.getDescription());
+                nested.writeBoolean(CLUE_DISCOVERED, clue.isDiscovered());
+                out.writeNested(CASE_CLUE, nested);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    //Decodes a case written by encode
+    //Throws IllegalArgumentException if the data is damaged or from a newer incompatible format
+    public static Case decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an encoded case");
+        }
+        int version = data[2] & 0xff;
+        if (version > VERSION) {
+            throw new IllegalArgumentException("Unsupported case format version " + version);
+        }
+
+        Case c = new Case();
+        List<Suspect> suspects = new ArrayList<>();
+        List<Clue> clues = new ArrayList<>();
+
+        Reader in = new Reader(data, 3, data.length);
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            int length = in.readLength();
+            int start = in.pos;
+            switch (tag) {
+                case CASE_TITLE:
+                    c.setTitle(in.string(start, length));
+                    break;
+                case CASE_CRIME_SCENE:
+                    c.setCrimeScene(in.string(start, length));
+                    break;
+                case CASE_DIFFICULTY:
+                    c.setDifficulty(parseDifficulty(in.string(start, length)));
+                    break;
+                case CASE_SUSPECT:
+                    suspects.add(decodeSuspect(new Reader(data, start, start + length)));
+                    break;
+                case CASE_CLUE:
+                    clues.add(decodeClue(new Reader(data, start, start + length)));
+                    break;
+                default:
+                    //unknown field from a newer version, skip it
+                    break;
+            }
+            in.pos = start + length;
+        }
+
+        c.setSuspects(suspects);
+        c.setClues(clues);
+        return c;
+    }
+
+    private static Suspect decodeSuspect(Reader in) {
+        String name = "";
+        String description = "";
+        boolean guilty = false;
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            int length = in.readLength();
+            int start = in.pos;
+            switch (tag) {
+                case SUSPECT_NAME:
+                    name = in.string(start, length);
+                    break;
+                case SUSPECT_DESCRIPTION:
+                    description = in.string(start, length);
+                    break;
+                case SUSPECT_GUILTY:
+                    guilty = in.bool(start, length);
+                    break;
+                default:
+                    break;
+            }
+            in.pos = start + length;
+        }
+        return new Suspect(name, description, guilty);
+    }
+
+    private static Clue decodeClue(Reader in) {
+        String description = "";
+        boolean discovered = false;
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            int length = in.readLength();
+            int start = in.pos;
+            switch (tag) {
+                case CLUE_DESCRIPTION:
+                    description = in.string(start, length);
+                    break;
+                case CLUE_DISCOVERED:
+                    discovered = in.bool(start, length);
+                    break;
+                default:
+                    break;
+            }
+            in.pos = start + length;
+        }
+        return new Clue(description, discovered);
+    }
+
+    private static Difficulty parseDifficulty(String name) {
+        for (Difficulty d : Difficulty.values()) {
+            if (d.name().equals(name)) {
+                return d;
+            }
+        }
+        return Difficulty.MEDIUM;
+    }
+
+    //Growable output buffer
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] src, int off, int len) {
+            ensure(len);
+            System.arraycopy(src, off, bytes, size, len);
+            size += len;
+        }
+
+        void writeString(int tag, String value) {
+            byte[] utf8 = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            writeByte(tag);
+            writeVarint(utf8.length);
+            writeBytes(utf8, 0, utf8.length);
+        }
+
+        void writeBoolean(int tag, boolean value) {
+            writeByte(tag);
+            writeVarint(1);
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeNested(int tag, Buffer nested) {
+            writeByte(tag);
+            writeVarint(nested.size);
+            writeBytes(nested.bytes, 0, nested.size);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    //Bounds-checked cursor over part of an encoded buffer
+    private static final class Reader {
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        Reader(byte[] data, int start, int end) {
+            if (end > data.length) {
+                throw new IllegalArgumentException("Truncated case data");
+            }
+            this.data = data;
+            this.pos = start;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return pos < end;
+        }
+
+        int readTag() {
+            return data[pos++] & 0xff;
+        }
+
+        int readLength() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (pos >= end) {
+                    throw new IllegalArgumentException("Truncated case data");
+                }
+                int b = data[pos++];
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0 || pos + value > end) {
+                        throw new IllegalArgumentException("Truncated case data");
+                    }
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed length in case data");
+        }
+
+        String string(int start, int length) {
+            return new String(data, start, length, StandardCharsets.UTF_8);
+        }
+
+        boolean bool(int start, int length) {
+            return length > 0 && data[start] != 0;
+        }
+    }
+}
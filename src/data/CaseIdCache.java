@@ -0,0 +1,101 @@
+package data;
+
+import Model.Case;
+import Model.Suspect;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Maps case titles, suspect names and clue descriptions to their integer ids
+//Ids are looked up (or created) once and then served from memory, so saves write plain id pairs.
+//Only used on the writer connection, inside save transactions.
+class CaseIdCache {
+    private final Map<String, Integer> caseIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Integer>> suspectIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Integer>> clueIds = new ConcurrentHashMap<>();
+
+    //Gets the id of a case, registering the case and its suspects the first time it's seen
+    int caseId(PooledConnection connection, Case c) throws SQLException {
+        Integer cached = caseIds.get(c.getTitle());
+        if (cached != null) {
+            return cached;
+        }
+
+        PreparedStatement insert = connection.prepare("INSERT OR IGNORE INTO cases (title, difficulty) VALUES (?, ?)");
+        insert.setString(1, c.getTitle());
+        insert.setString(2, c.getDifficulty() != null ? c.getDifficulty().name() : "MEDIUM");
+        insert.executeUpdate();
+
+        int id = selectId(connection, "SELECT id FROM cases WHERE title = ?", c.getTitle(), null);
+
+        PreparedStatement suspect = connection.prepare(
+                "INSERT OR IGNORE INTO suspects (case_id, name, is_guilty) VALUES (?, ?, ?)");
+        for (Suspect s : c.getSuspects()) {
+            suspect.setInt(1, id);
+            suspect.setString(2, s.getName());
+            suspect.setBoolean(3, s.isGuilty());
+            suspect.addBatch();
+        }
+        suspect.executeBatch();
+
+        caseIds.put(c.getTitle(), id);
+        return id;
+    }
+
+    //Gets a suspect's id within a case, adding the suspect if it isn't registered yet
+    int suspectId(PooledConnection connection, int caseId, String name) throws SQLException {
+        return entityId(connection, suspectIds, caseId, name,
+                "INSERT OR IGNORE INTO suspects (case_id, name) VALUES (?, ?)",
+                "SELECT id FROM suspects WHERE case_id = ? AND name = ?");
+    }
+
+    //Gets a clue's id within a case, adding the clue if it isn't registered yet
+    int clueId(PooledConnection connection, int caseId, String description) throws SQLException {
+        return entityId(connection, clueIds, caseId, description,
+                "INSERT OR IGNORE INTO clues (case_id, description) VALUES (?, ?)",
+                "SELECT id FROM clues WHERE case_id = ? AND description = ?");
+    }
+
+    private int entityId(PooledConnection connection, Map<Integer, Map<String, Integer>> cache, int caseId,
+                         String key, String insertSql, String selectSql) throws SQLException {
+        Map<String, Integer> ids = cache.computeIfAbsent(caseId, k -> new ConcurrentHashMap<>());
+        Integer cached = ids.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        PreparedStatement insert = connection.prepare(insertSql);
+        insert.setInt(1, caseId);
+        insert.setString(2, key);
+        insert.executeUpdate();
+
+        int id = selectId(connection, selectSql, key, caseId);
+        ids.put(key, id);
+        return id;
+    }
+
+    private int selectId(PooledConnection connection, String sql, String key, Integer caseId) throws SQLException {
+        PreparedStatement select = connection.prepare(sql);
+        int index = 1;
+        if (caseId != null) {
+            select.setInt(index++, caseId);
+        }
+        select.setString(index, key);
+        try (ResultSet rs = select.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("Missing id for " + key);
+            }
+            return rs.getInt(1);
+        }
+    }
+
+    //Forgets everything, used when a save rolls back and ids handed out inside it no longer exist
+    void clear() {
+        caseIds.clear();
+        suspectIds.clear();
+        clueIds.clear();
+    }
+}
@@ -0,0 +1,198 @@
+package data;
+
+import Model.CaseDefinition;
+import Model.Difficulty;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Writes big made-up case packs for scale testing
+ *
+ * The ship is a grid of decks and sections. Every section is joined to the next one on its deck and
+ * the first section of every deck to the deck above, so every room can be reached, and more links
+ * between decks are added at random. Exactly one suspect is guilty and some clues name them, so the
+ * case can always be solved. Clue descriptions carry an evidence number, which keeps them unique.
+ *
+ * The pack is written line by line as it's made up, nothing is kept but the grid size and the
+ * guilty suspect's number, so the size of a pack is only limited by the disk. The same seed and
+ * sizes always give the same file.
+ *
+ * Usage: java data.CasePackGenerator [rooms=2000] [suspects=200] [clues=20000] [questions=10000]
+ *        [seed=42] [out=mega-42.case] [verify=true]
+ * verify=true reads the pack back with the game's reader and prints what it found and how long it took.
+ */
+public class CasePackGenerator {
+
+    private static final String[] ROOM_KINDS = {"Airlock", "Armory", "Cargo Hold", "Galley", "Hydroponics Bay",
+            "Laboratory", "Maintenance Shaft", "Medical Bay", "Observation Deck", "Reactor Annex",
+            "Sensor Array", "Storage Locker", "Crew Bunks", "Shuttle Bay", "Comms Room", "Water Reclamation"};
+    private static final String[] ROOM_MOODS = {"Emergency lights flicker over", "A thin haze hangs above",
+            "Frost has crept across", "Loose cables dangle above", "Something has been dragged across",
+            "A low alarm echoes over", "Boot prints are smeared across", "Dust has settled on"};
+    private static final String[] ROOM_THINGS = {"the deck plates", "the storage racks", "the control panels",
+            "the bulkheads", "the workbenches", "the cargo crates", "the air vents", "the sealed hatches"};
+    private static final String[] FIRST_NAMES = {"Ada", "Boris", "Chen", "Dana", "Elif", "Farid", "Greta", "Hiro",
+            "Ines", "Jonah", "Kira", "Luca", "Mira", "Nadia", "Omar", "Priya", "Quinn", "Rosa", "Sven", "Tariq",
+            "Uma", "Viktor", "Wen", "Yara", "Zane"};
+    private static final String[] ROLES = {"pilot", "navigator", "medic", "engineer", "security officer",
+            "botanist", "cook", "technician", "geologist", "quartermaster", "comms officer", "cadet"};
+    private static final String[] TRAITS = {"keeps to themselves", "was seen arguing with the victim",
+            "has a spotless record", "owes money to half the crew", "was off shift that night",
+            "asked for a transfer last week", "knows the ship's systems better than anyone", "rarely sleeps"};
+    private static final String[] CLUE_STATES = {"Scorched", "Torn", "Bent", "Wiped", "Cracked", "Bloodied",
+            "Half-buried", "Recently oiled", "Unlabelled", "Tampered"};
+    private static final String[] CLUE_THINGS = {"access card", "wrench", "oxygen canister", "data pad",
+            "glove", "fuse", "vent cover", "log tablet", "tool belt", "coolant hose", "badge", "syringe"};
+    private static final String[] TOPICS = {"alibi", "reactor", "oxygen", "vent cover", "access logs",
+            "victim", "airlock", "weapons", "night shift", "fingerprints"};
+
+    private final Random random;
+    private final int rooms;
+    private final int suspects;
+    private final int clues;
+    private final int questions;
+    private final int width;
+
+    public CasePackGenerator(long seed, int rooms, int suspects, int clues, int questions) {
+        if (rooms < 1 || suspects < 1) {
+            throw new IllegalArgumentException("A case needs at least one room and one suspect");
+        }
+        this.random = new Random(seed);
+        this.rooms = rooms;
+        this.suspects = suspects;
+        this.clues = clues;
+        this.questions = questions;
+        this.width = (int) Math.ceil(Math.sqrt(rooms));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseArgs(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int rooms = Integer.parseInt(options.getOrDefault("rooms", "2000"));
+        int suspects = Integer.parseInt(options.getOrDefault("suspects", "200"));
+        int clues = Integer.parseInt(options.getOrDefault("clues", "20000"));
+        int questions = Integer.parseInt(options.getOrDefault("questions", "10000"));
+        Path out = Paths.get(options.getOrDefault("out", "mega-" + seed + CaseCatalog.EXTENSION));
+
+        long start = System.nanoTime();
+        new CasePackGenerator(seed, rooms, suspects, clues, questions).write(out);
+        System.out.printf("Wrote %s (%d bytes) in %dms%n", out, Files.size(out), (System.nanoTime() - start) / 1_000_000);
+
+        if (Boolean.parseBoolean(options.getOrDefault("verify", "true"))) {
+            start = System.nanoTime();
+            CaseDefinition definition = CasePackReader.readCase(out);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("Read back in %dms: %d rooms, %d exits, %d suspects, %d clues, %d questions%n",
+                    millis, definition.getRooms().size(), definition.getExits().size(),
+                    definition.getSuspects().size(), definition.getClueCount(), definition.getQuestions().size());
+            int farthest = 0;
+            int startRoom = definition.getGraph().getStartRoom();
+            for (int r = 0; r < definition.getRooms().size(); r++) {
+                int distance = definition.getGraph().distance(startRoom, r);
+                if (distance < 0) throw new IOException("Room " + definition.getRooms().get(r).getName() + " can't be reached");
+                farthest = Math.max(farthest, distance);
+            }
+            System.out.println("Every room can be reached, the farthest is " + farthest + " moves from the start");
+        }
+    }
+
+    //Writes the whole pack to a file
+    public void write(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(out);
+        }
+    }
+
+    public void write(Writer out) throws IOException {
+        int guilty = random.nextInt(suspects);
+
+        out.write("# Generated by CasePackGenerator: " + rooms + " rooms, " + suspects + " suspects, "
+                + clues + " clues, " + questions + " questions\n");
+        out.write("title: Mega Case " + Integer.toHexString(random.nextInt()) + "\n");
+        out.write("difficulty: " + Difficulty.HARD.name() + "\n");
+        out.write("start: " + roomName(0) + "\n");
+        out.write(CasePackReader.SEPARATOR + "\n");
+        out.write("scene: The station master was found dead in the " + roomName(0)
+                + ". The door was sealed from the inside. Someone aboard knows more than they say.\n\n");
+
+        for (int r = 0; r < rooms; r++) {
+            out.write("room: " + roomName(r) + " | " + pick(ROOM_MOODS) + " " + pick(ROOM_THINGS)
+                    + " of this " + ROOM_KINDS[r % ROOM_KINDS.length].toLowerCase() + ".\n");
+        }
+        out.write('\n');
+
+        //East along each deck, north from the first section of each deck, and some extra links north
+        for (int r = 0; r < rooms; r++) {
+            int x = r % width;
+            if (x + 1 < width && r + 1 < rooms) {
+                out.write("exit: " + roomName(r) + " | east | " + roomName(r + 1) + "\n");
+            }
+            if (r + width < rooms && (x == 0 || random.nextInt(4) == 0)) {
+                out.write("exit: " + roomName(r) + " | north | " + roomName(r + width) + "\n");
+            }
+        }
+        out.write('\n');
+
+        for (int s = 0; s < suspects; s++) {
+            out.write("suspect: " + suspectName(s) + " | The " + pick(ROLES) + ", " + pick(TRAITS) + ". | "
+                    + (s == guilty ? "guilty" : "innocent") + "\n");
+        }
+        out.write('\n');
+
+        //Every tenth clue points at the killer, the rest are noise
+        for (int c = 0; c < clues; c++) {
+            String description = c % 10 == 0
+                    ? "Personal effect of " + suspectName(guilty) + " dropped near a body bag (evidence " + c + ")"
+                    : pick(CLUE_STATES) + " " + pick(CLUE_THINGS) + " (evidence " + c + ")";
+            out.write("clue: " + roomName(random.nextInt(rooms)) + " | " + description + "\n");
+        }
+        out.write('\n');
+
+        for (int q = 0; q < questions; q++) {
+            out.write("question: What can you tell me about the " + pick(TOPICS) + " on shift " + q + "?\n");
+        }
+        out.write('\n');
+
+        //The killer dodges, everyone else is straight, so questioning is enough to tell who did it
+        for (String topic : TOPICS) {
+            out.write("response: guilty | " + topic + " | The " + topic + "? I... I don't know anything about that.\n");
+            out.write("response: innocent | " + topic + " | The " + topic + " was fine when I checked, ask the logs.\n");
+        }
+        out.write("default: guilty | Why do you keep asking ME?\n");
+        out.write("default: innocent | I don't have information about that.\n");
+    }
+
+    //Rooms are named by deck and section, so no two share a name
+    private String roomName(int r) {
+        return ROOM_KINDS[r % ROOM_KINDS.length] + " D" + (r / width) + "-S" + (r % width);
+    }
+
+    //A first name and crew number, unique for every suspect
+    private static String suspectName(int s) {
+        return FIRST_NAMES[s % FIRST_NAMES.length] + " " + (s + 1);
+    }
+
+    private String pick(String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
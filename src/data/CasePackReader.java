@@ -0,0 +1,297 @@
+package data;
+
+import Model.CaseDefinition;
+import Model.Difficulty;
+import Model.Direction;
+import util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads case pack files (*.case)
+ *
+ * A pack is line based. Blank lines and lines starting with # are ignored, every other line is
+ * "key: value" and multi-field values are split on |. Text can use \n for a line break.
+ * The header comes first and ends at a line holding only ---, the body follows:
+ *
+ *   title: The Sabotaged Spaceship
+ *   difficulty: MEDIUM
+ *   start: Engine Room
+ *   ---
+ *   scene: Chief Engineer Harris was found dead...
+ *   room: Engine Room | The ship's engine room hums with activity...
+ *   exit: Engine Room | north | Crew Quarters
+ *   suspect: Samantha | The medic... | guilty
+ *   clue: Engine Room | Broken vent cover
+ *   question: Do you have any alibi?
+ *   response: guilty | alibi, what were you doing | I was... um... alone.
+ *   default: innocent | I don't have information about that.
+ *
+ * Exits work both ways unless a fourth field says oneway. Exactly one suspect must be guilty.
+ * A response or default applies to a suspect's name, guilty, innocent or any, and response
+ * keywords are separated by commas.
+ * Both parts are read as a stream, so reading the header of a huge pack stops at the --- line.
+ */
+final class CasePackReader {
+
+    static final String SEPARATOR = "---";
+
+    private CasePackReader() {
+    }
+
+    //Reads only the header of a pack
+    static CaseCatalog.Entry readHeader(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            LineSource in = new LineSource(file, reader);
+            return readHeader(in);
+        }
+    }
+
+    //Reads a whole pack into a case definition
+    static CaseDefinition readCase(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            LineSource in = new LineSource(file, reader);
+            CaseCatalog.Entry header = readHeader(in);
+            return readBody(in, header);
+        }
+    }
+
+    private static CaseCatalog.Entry readHeader(LineSource in) throws IOException {
+        String title = null;
+        String start = null;
+        Difficulty difficulty = Difficulty.MEDIUM;
+
+        String[] line;
+        while ((line = in.next()) != null) {
+            if (line[0].equals(SEPARATOR)) {
+                if (title == null) throw in.error("header has no title");
+                if (start == null) throw in.error("header has no start room");
+                return new CaseCatalog.Entry(id(in.file), title, difficulty, start, in.file);
+            }
+            switch (line[0]) {
+                case "title":
+                    title = line[1];
+                    break;
+                case "start":
+                    start = line[1];
+                    break;
+                case "difficulty":
+                    difficulty = parseDifficulty(in, line[1]);
+                    break;
+                default:
+                    Log.warn("CASE", "{}: skipping unknown header key {}", in.where(), line[0]);
+                    break;
+            }
+        }
+        throw in.error("header is not closed with " + SEPARATOR);
+    }
+
+    private static CaseDefinition readBody(LineSource in, CaseCatalog.Entry header) throws IOException {
+        String scene = "";
+        Map<String, String> rooms = new LinkedHashMap<>();
+        Map<String, List<String>> clues = new LinkedHashMap<>();
+        Set<String> clueNames = new HashSet<>();
+        List<CaseDefinition.Exit> exits = new ArrayList<>();
+        Map<String, String> exitTargets = new HashMap<>();
+        List<CaseDefinition.SuspectSpec> suspects = new ArrayList<>();
+        List<String> questions = new ArrayList<>();
+        List<CaseDefinition.ResponseRule> responses = new ArrayList<>();
+        int guilty = 0;
+
+        String[] line;
+        while ((line = in.next()) != null) {
+            String[] fields = line[1].split("\\|", -1);
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = unescape(fields[i].trim());
+            }
+
+            switch (line[0]) {
+                case "scene":
+                    scene = fields[0];
+                    break;
+                case "room":
+                    require(in, fields, 2);
+                    if (rooms.put(fields[0], fields[1]) != null) {
+                        throw in.error("room " + fields[0] + " is declared twice");
+                    }
+                    break;
+                case "exit": {
+                    require(in, fields, 3);
+                    Direction direction = Direction.parse(fields[1]);
+                    if (direction == null) throw in.error("unknown direction " + fields[1]);
+                    addExit(in, exits, exitTargets, fields[0], direction, fields[2]);
+                    if (fields.length < 4 || !fields[3].equalsIgnoreCase("oneway")) {
+                        addExit(in, exits, exitTargets, fields[2], direction.opposite(), fields[0]);
+                    }
+                    break;
+                }
+                case "suspect": {
+                    require(in, fields, 3);
+                    boolean isGuilty = parseGuilt(in, fields[2]);
+                    if (isGuilty) guilty++;
+                    suspects.add(new CaseDefinition.SuspectSpec(fields[0], fields[1], isGuilty));
+                    break;
+                }
+                case "clue":
+                    require(in, fields, 2);
+                    //saves refer to clues by description, so two clues can't share one
+                    if (!clueNames.add(fields[1])) throw in.error("clue " + fields[1] + " is declared twice");
+                    clues.computeIfAbsent(fields[0], r -> new ArrayList<>()).add(fields[1]);
+                    break;
+                case "question":
+                    questions.add(fields[0]);
+                    break;
+                case "response": {
+                    require(in, fields, 3);
+                    List<String> keywords = new ArrayList<>();
+                    for (String keyword : fields[1].split(",")) {
+                        if (!keyword.trim().isEmpty()) keywords.add(keyword.trim());
+                    }
+                    if (keywords.isEmpty()) throw in.error("response has no keywords, use default instead");
+                    responses.add(new CaseDefinition.ResponseRule(fields[0], keywords, fields[2]));
+                    break;
+                }
+                case "default":
+                    require(in, fields, 2);
+                    responses.add(new CaseDefinition.ResponseRule(fields[0], new ArrayList<>(), fields[1]));
+                    break;
+                default:
+                    Log.warn("CASE", "{}: skipping unknown key {}", in.where(), line[0]);
+                    break;
+            }
+        }
+
+        //Everything can be declared in any order, so references are checked once the body is read
+        if (!rooms.containsKey(header.getStartRoom())) {
+            throw in.error("start room " + header.getStartRoom() + " is not declared");
+        }
+        for (CaseDefinition.Exit exit : exits) {
+            if (!rooms.containsKey(exit.getFrom()) || !rooms.containsKey(exit.getTo())) {
+                throw in.error("exit " + exit.getFrom() + " -> " + exit.getTo() + " uses an undeclared room");
+            }
+        }
+        for (String room : clues.keySet()) {
+            if (!rooms.containsKey(room)) {
+                throw in.error("clue placed in undeclared room " + room);
+            }
+        }
+        if (guilty != 1) {
+            throw in.error("exactly one suspect must be guilty, found " + guilty);
+        }
+
+        List<CaseDefinition.RoomSpec> roomSpecs = new ArrayList<>(rooms.size());
+        for (Map.Entry<String, String> room : rooms.entrySet()) {
+            roomSpecs.add(new CaseDefinition.RoomSpec(room.getKey(), room.getValue(),
+                    clues.getOrDefault(room.getKey(), new ArrayList<>())));
+        }
+        return new CaseDefinition(header.getTitle(), header.getDifficulty(), header.getStartRoom(), scene,
+                roomSpecs, exits, suspects, questions, responses);
+    }
+
+    //Adds an exit unless the same one is already there, which happens when both ways are written out
+    private static void addExit(LineSource in, List<CaseDefinition.Exit> exits, Map<String, String> exitTargets,
+                                String from, Direction direction, String to) throws IOException {
+        String existing = exitTargets.putIfAbsent(from + '|' + direction, to);
+        if (existing != null) {
+            if (existing.equals(to)) return;
+            throw in.error(from + " already has an exit " + direction.getDisplayName() + " to " + existing);
+        }
+        exits.add(new CaseDefinition.Exit(from, direction, to));
+    }
+
+    private static void require(LineSource in, String[] fields, int count) throws IOException {
+        if (fields.length < count) {
+            throw in.error("expected " + count + " fields separated by |");
+        }
+    }
+
+    private static Difficulty parseDifficulty(LineSource in, String value) throws IOException {
+        for (Difficulty d : Difficulty.values()) {
+            if (d.name().equalsIgnoreCase(value)) {
+                return d;
+            }
+        }
+        throw in.error("unknown difficulty " + value);
+    }
+
+    private static boolean parseGuilt(LineSource in, String value) throws IOException {
+        if (value.equalsIgnoreCase("guilty")) return true;
+        if (value.equalsIgnoreCase("innocent")) return false;
+        throw in.error("suspect must be guilty or innocent, not " + value);
+    }
+
+    //Turns \n into a line break and \\ into a backslash
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    //The catalog id of a pack is its file name without the extension
+    private static String id(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(CaseCatalog.EXTENSION)
+                ? name.substring(0, name.length() - CaseCatalog.EXTENSION.length())
+                : name;
+    }
+
+    //Hands out the meaningful lines of a pack as {key, value}, keeping track of the line number for errors
+    private static final class LineSource {
+        private final Path file;
+        private final BufferedReader reader;
+        private int lineNumber;
+
+        LineSource(Path file, BufferedReader reader) {
+            this.file = file;
+            this.reader = reader;
+        }
+
+        String[] next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                if (line.equals(SEPARATOR)) {
+                    return new String[]{SEPARATOR, ""};
+                }
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    throw error("expected key: value");
+                }
+                return new String[]{line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim()};
+            }
+            return null;
+        }
+
+        String where() {
+            return file.getFileName() + ":" + lineNumber;
+        }
+
+        IOException error(String message) {
+            return new IOException(where() + ": " + message);
+        }
+    }
+}
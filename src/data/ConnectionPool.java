@@ -0,0 +1,282 @@
+package data;
+
+import util.Log;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+//Bounded pool of SQLite connections running in WAL mode
+//Reads are spread over a fixed set of reader connections, writes go through a single serialized
+//writer connection so loads keep working while a save transaction is open.
+//Every connection carries its own prepared statement cache, so warmed-up queries skip SQL parsing.
+//The pool counts how often callers had to wait for a reader or for the writer, and for how long.
+public class ConnectionPool {
+
+    //A unit of work run against a pooled connection
+    public interface SqlWork<T> {
+        T run(PooledConnection connection) throws SQLException;
+    }
+
+    public static final int DEFAULT_READERS = 4;
+    public static final int BUSY_TIMEOUT_MILLIS = 5000;
+    public static final int STATEMENT_CACHE_SIZE = 32;
+    private static final long BORROW_TIMEOUT_MILLIS = 10000;
+
+    private final String url;
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    //contention counters
+    private final AtomicLong readerBorrows = new AtomicLong();
+    private final AtomicLong readerWaits = new AtomicLong();
+    private final AtomicLong readerWaitNanos = new AtomicLong();
+    private final AtomicLong writerLocks = new AtomicLong();
+    private final AtomicLong writerWaits = new AtomicLong();
+    private final AtomicLong writerWaitNanos = new AtomicLong();
+    private PooledConnection writer;
+    private volatile boolean closed;
+
+    //Opens the writer connection first (it switches the file to WAL) and then the reader connections
+    public ConnectionPool(String url, int readerCount) throws SQLException {
+        if (readerCount < 1) {
+            throw new IllegalArgumentException("readerCount must be at least 1");
+        }
+        this.url = url;
+        this.idleReaders = new ArrayBlockingQueue<>(readerCount);
+        try {
+            writer = open(false);
+            for (int i = 0; i < readerCount; i++) {
+                idleReaders.add(open(true));
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    //Opens and configures one connection
+    //WAL lets readers run beside the writer, NORMAL sync is safe in WAL mode and skips an fsync per commit
+    private PooledConnection open(boolean reader) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            if (!reader) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            if (reader) {
+                stmt.execute("PRAGMA query_only = true");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return new PooledConnection(conn, new StatementCache(conn, STATEMENT_CACHE_SIZE, statementHits, statementMisses));
+    }
+
+    //Runs read-only work on a borrowed reader connection
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        PooledConnection conn = borrowReader();
+        try {
+            return work.run(conn);
+        } finally {
+            releaseReader(conn);
+        }
+    }
+
+    //Runs work on the writer connection, one caller at a time
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        lockWriter();
+        try {
+            return work.run(writer());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //Runs work inside a single transaction on the writer connection
+    //Commits on success and rolls back if the work throws
+    public <T> T transaction(SqlWork<T> work) throws SQLException {
+        return transaction(work, result -> { });
+    }
+
+    //Same, then hands the result to afterCommit while still holding the write lock
+    //Lets in-memory copies of the rows change in commit order, and not at all on a rollback
+    public <T> T transaction(SqlWork<T> work, Consumer<T> afterCommit) throws SQLException {
+        lockWriter();
+        try {
+            PooledConnection conn = writer();
+            Connection raw = conn.raw();
+            raw.setAutoCommit(false);
+            T result;
+            try {
+                result = work.run(conn);
+                raw.commit();
+            } catch (SQLException | RuntimeException e) {
+                //The original failure is what gets thrown, cleanup failing too is attached to it
+                try {
+                    raw.rollback();
+                } catch (SQLException | RuntimeException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                try {
+                    raw.setAutoCommit(true);
+                } catch (SQLException | RuntimeException resetError) {
+                    e.addSuppressed(resetError);
+                }
+                throw e;
+            }
+            try {
+                afterCommit.accept(result);
+            } finally {
+                raw.setAutoCommit(true);
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //Takes the write lock, counting the wait if another writer has it
+    private void lockWriter() throws SQLException {
+        writerLocks.incrementAndGet();
+        try {
+            if (writeLock.tryLock(0, TimeUnit.NANOSECONDS)) return;
+            long start = System.nanoTime();
+            writeLock.lockInterruptibly();
+            writerWaits.incrementAndGet();
+            writerWaitNanos.addAndGet(System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
+        }
+    }
+
+    //Gets the writer connection, recycling it if it was closed underneath us
+    //Caller must hold the write lock
+    private PooledConnection writer() throws SQLException {
+        checkOpen();
+        if (writer == null || writer.isClosed()) {
+            closeQuietly(writer);
+            writer = open(false);
+        }
+        return writer;
+    }
+
+    private PooledConnection borrowReader() throws SQLException {
+        checkOpen();
+        readerBorrows.incrementAndGet();
+        PooledConnection conn = idleReaders.poll();
+        try {
+            if (conn == null) {
+                long start = System.nanoTime();
+                conn = idleReaders.poll(BORROW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                readerWaits.incrementAndGet();
+                readerWaitNanos.addAndGet(System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        if (conn == null) {
+            throw new SQLException("Timed out waiting for a reader connection");
+        }
+        if (conn.isClosed()) {
+            //recycle: drop the dead connection's statements before replacing it
+            closeQuietly(conn);
+            try {
+                conn = open(true);
+            } catch (SQLException e) {
+                idleReaders.offer(conn); //keep the slot so the pool doesn't shrink
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    private void releaseReader(PooledConnection conn) {
+        if (closed) {
+            closeQuietly(conn);
+            return;
+        }
+        idleReaders.offer(conn);
+    }
+
+    //Prepared statements served from a connection's cache
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    //Prepared statements that had to be parsed
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    //Reader connections handed out, and how many of those had to wait for one to come back
+    public long getReaderBorrows() {
+        return readerBorrows.get();
+    }
+
+    public long getReaderWaits() {
+        return readerWaits.get();
+    }
+
+    public long getReaderWaitNanos() {
+        return readerWaitNanos.get();
+    }
+
+    //Writes and transactions started, and how many of those had to wait for another writer
+    public long getWriterLocks() {
+        return writerLocks.get();
+    }
+
+    public long getWriterWaits() {
+        return writerWaits.get();
+    }
+
+    public long getWriterWaitNanos() {
+        return writerWaitNanos.get();
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    //Closes every connection in the pool
+    //Readers that are still borrowed are closed when they come back
+    public void close() {
+        closed = true;
+        PooledConnection conn;
+        while ((conn = idleReaders.poll()) != null) {
+            closeQuietly(conn);
+        }
+        writeLock.lock();
+        try {
+            closeQuietly(writer);
+            writer = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void closeQuietly(PooledConnection conn) {
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            Log.warn("DB", "Error closing pooled connection: {}", e.getMessage());
+        }
+    }
+}
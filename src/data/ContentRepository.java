@@ -0,0 +1,147 @@
+package data;
+
+import Model.CaseDefinition;
+import util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Parse-once cache for the game's content files: the case catalog, case packs and question lists
+//Everything handed out is immutable, so one repository is shared by every game session.
+//Entries are keyed by path and remember the file's modification time, so an edited file is parsed
+//again the next time it is asked for. Asking only costs a file stat, and the game asks when a case
+//is loaded, never on an ordinary action.
+public class ContentRepository {
+
+    //Used when the question file can't be read
+    private static final List<String> DEFAULT_QUESTIONS = Collections.unmodifiableList(Arrays.asList(
+            "What were you doing at the time of the incident?",
+            "Do you have an alibi?",
+            "Did you know the victim well?"));
+
+    private static final QuestionFile DEFAULT_QUESTION_FILE = new QuestionFile(DEFAULT_QUESTIONS);
+
+    private static final ContentRepository SHARED = new ContentRepository();
+
+    private final ConcurrentHashMap<Path, Cached<CaseCatalog>> catalogs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Cached<CaseDefinition>> cases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Cached<QuestionFile>> questionLists = new ConcurrentHashMap<>();
+
+    //Reads a file into its parsed form
+    private interface Parser<T> {
+        T parse(Path path) throws IOException;
+    }
+
+    //The repository shared by every session in this JVM
+    public static ContentRepository shared() {
+        return SHARED;
+    }
+
+    //The catalog for a directory of case packs
+    //A directory's time changes when packs are added or removed, which rebuilds the index
+    public CaseCatalog catalog(Path directory) {
+        try {
+            return get(catalogs, directory, CaseCatalog::new);
+        } catch (IOException e) {
+            //missing directory, CaseCatalog logs it and comes back empty
+            return new CaseCatalog(directory);
+        }
+    }
+
+    //The parsed body of a case pack
+    public CaseDefinition caseDefinition(CaseCatalog.Entry entry) throws IOException {
+        return get(cases, entry.getPath(), CasePackReader::readCase);
+    }
+
+    //The non-blank lines of a question file, or a few default questions if it can't be read
+    public List<String> questions(Path path) {
+        return questionFile(path).questions;
+    }
+
+    //Each question of a list from questions(path) to its position, built once per parse of the file
+    //A list the file no longer matches (it was edited since) gets an index of its own
+    public Map<String, Integer> questionIds(Path path, List<String> questions) {
+        QuestionFile file = questionFile(path);
+        return file.questions == questions ? file.ids : new QuestionFile(questions).ids;
+    }
+
+    private QuestionFile questionFile(Path path) {
+        try {
+            return get(questionLists, path, ContentRepository::readQuestions);
+        } catch (IOException e) {
+            Log.warn("GAME", "Error loading questions: {}", e.getMessage());
+            return DEFAULT_QUESTION_FILE;
+        }
+    }
+
+    //Drops everything so the next request reads the files again
+    public void clear() {
+        catalogs.clear();
+        cases.clear();
+        questionLists.clear();
+    }
+
+    //Returns the cached value if the file hasn't changed since it was parsed
+    //Two threads missing at once may both parse, the results are equal and the last one is kept
+    private static <T> T get(ConcurrentHashMap<Path, Cached<T>> cache, Path path, Parser<T> parser) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        long modified = Files.getLastModifiedTime(key).toMillis();
+        Cached<T> cached = cache.get(key);
+        if (cached != null && cached.modified == modified) {
+            return cached.value;
+        }
+
+        T value = parser.parse(key);
+        cache.put(key, new Cached<>(modified, value));
+        Log.debug("CONTENT", "Parsed {}", key);
+        return value;
+    }
+
+    private static QuestionFile readQuestions(Path path) throws IOException {
+        List<String> questions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    questions.add(line.trim());
+                }
+            }
+        }
+        return new QuestionFile(Collections.unmodifiableList(questions));
+    }
+
+    //A question list and where each question sits in it
+    private static final class QuestionFile {
+        final List<String> questions;
+        final Map<String, Integer> ids;
+
+        QuestionFile(List<String> questions) {
+            this.questions = questions;
+            Map<String, Integer> ids = new HashMap<>();
+            for (int q = 0; q < questions.size(); q++) {
+                ids.putIfAbsent(questions.get(q), q);
+            }
+            this.ids = Collections.unmodifiableMap(ids);
+        }
+    }
+
+    private static final class Cached<T> {
+        final long modified;
+        final T value;
+
+        Cached(long modified, T value) {
+            this.modified = modified;
+            this.value = value;
+        }
+    }
+}
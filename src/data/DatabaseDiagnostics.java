@@ -0,0 +1,52 @@
+package data;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * On-demand dump of the player and game state tables
+ * Scans whole tables, so it is run by hand when debugging saves and never from the game itself
+ */
+public class DatabaseDiagnostics {
+
+    public static void main(String[] args) {
+        DatabaseManager db = new DatabaseManager();
+        try (Connection conn = db.getConnection()) {
+            printGameState(conn);
+        } catch (SQLException e) {
+            System.err.println("Diagnostics failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            db.closeConnection();
+        }
+    }
+
+    //Prints debug information about current database state
+    public static void printGameState(Connection connection) throws SQLException {
+        System.out.println("\n=== DATABASE DEBUG INFO ===");
+
+        //Print all players
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM players")) {
+            System.out.println("Players:");
+            while (rs.next()) {
+                System.out.println("ID: " + rs.getInt("id") +
+                        ", Name: " + rs.getString("name"));
+            }
+        }
+
+        //Print all game states
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM game_state")) {
+            System.out.println("Game States:");
+            while (rs.next()) {
+                System.out.println("Player ID: " + rs.getInt("player_id") +
+                        ", Room: " + rs.getString("current_room"));
+            }
+        }
+
+        System.out.println("=== END DEBUG INFO ===\n");
+    }
+}
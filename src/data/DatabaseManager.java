@@ -1,6 +1,8 @@
 package data;
 
 import Model.*;
+import util.Log;
+
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -11,24 +13,53 @@ import java.util.Map;
 //Manages all database operations for the detective game
 //Handles player data, game state, cases, suspects and clues
 public class DatabaseManager {
-    private Connection connection;
+    private ConnectionPool pool;
+    private final String url;
+    private final CaseIdCache ids = new CaseIdCache();
+    private Leaderboard leaderboard;
     private static final String DB_URL = "jdbc:sqlite:detective.db";
 
-    //Initializes database connection and creates tables if they don't exist
+    //Initializes the connection pool and creates tables if they don't exist
     public DatabaseManager() {
+        this(DB_URL, ConnectionPool.DEFAULT_READERS);
+    }
+
+    //Initializes a connection pool against the given database with the given number of reader connections
+    public DatabaseManager(String url, int readerCount) {
+        this.url = url;
         try {
+            pool = new ConnectionPool(url, readerCount);
+            boolean rewritten = pool.transaction(this::initializeDatabase);
+
+            //A migration leaves the old tables' pages free, give them back to the file system
+            if (rewritten) {
+                pool.write(conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("VACUUM");
+                    }
+                    return null;
+                });
+            }
 
-            connection = DriverManager.getConnection(DB_URL);
-            initializeDatabase();
+            leaderboard = new Leaderboard(pool);
         } catch (SQLException e) {
-            System.err.println("Database connection failed: " + e.getMessage());
+            Log.error("DB", "Database connection failed: {}", e.getMessage());
+        }
+    }
+
+    //Gets the connection pool, failing if the database could not be opened
+    private ConnectionPool pool() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database is not available");
         }
+        return pool;
     }
 
-    //Creates all required tables if they don't exist
+    //Creates all required tables if they don't exist and migrates older databases
+    //Returns true if a migration rewrote existing data
     //Tthrows SQLException if any database operation fails
 
-    private void initializeDatabase() throws SQLException {
+    private boolean initializeDatabase(PooledConnection connection) throws SQLException {
         // SQL statements for creating all necessary tables
         String createPlayers = "CREATE TABLE IF NOT EXISTS players (" +
                 "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -54,26 +85,16 @@ public class DatabaseManager {
                 "current_room TEXT NOT NULL," +
                 "FOREIGN KEY (player_id) REFERENCES players(id))";
 
-        String createSuspectProgress = "CREATE TABLE IF NOT EXISTS suspect_progress (" +
-                "player_id INTEGER," +
-                "suspect_name TEXT," +
-                "questioned BOOLEAN DEFAULT FALSE," +
-                "PRIMARY KEY (player_id, suspect_name)," +
-                "FOREIGN KEY (player_id) REFERENCES players(id))";
-
-        String createClueProgress = "CREATE TABLE IF NOT EXISTS clue_progress (" +
-                "player_id INTEGER," +
-                "clue_description TEXT," +
-                "discovered BOOLEAN DEFAULT FALSE," +
-                "PRIMARY KEY (player_id, clue_description)," +
-                "FOREIGN KEY (player_id) REFERENCES players(id))";
-
+        //case_data holds the CaseCodec encoding, crime_scene and suspects_data are only used by old rows
         String createSavedCases = "CREATE TABLE IF NOT EXISTS saved_cases (" +
                 "player_id INTEGER PRIMARY KEY," +
                 "case_title TEXT NOT NULL," +
                 "crime_scene TEXT NOT NULL," +
                 "suspects_data TEXT NOT NULL," +
-                "FOREIGN KEY (player_id) REFERENCES players(id))";
+                "case_data BLOB," +
+                "case_id INTEGER," +
+                "FOREIGN KEY (player_id) REFERENCES players(id)," +
+                "FOREIGN KEY (case_id) REFERENCES cases(id))";
 
 
 // Execute all table creation statements
@@ -82,338 +103,416 @@ public class DatabaseManager {
             stmt.execute(createCases);
             stmt.execute(createSuspects);
             stmt.execute(createGameState);
-            stmt.execute(createSuspectProgress);
-            stmt.execute(createClueProgress);
             stmt.execute(createSavedCases);
         }
+
+        //The progress tables and the clues table are created by the migrations
+        return SchemaMigrations.migrate(connection);
     }
 
     /**
-     * Gets the database connection, reconnecting if necessary
-     * Return active database connection
+     * Opens a standalone connection to the game database for tools and tests
+     * The connection is not part of the pool, the caller must close it
      * Throws SQLException if connection fails
      */
     public Connection getConnection() throws SQLException{
-        if (connection == null || connection.isClosed()){
-            connection = DriverManager.getConnection(DB_URL);
-        }
-        return connection;
+        return DriverManager.getConnection(url);
     }
 
     //Creates a new player record in the database
     public void createPlayer(String playerName) throws SQLException {
-        String sql = "INSERT INTO players (name) VALUES (?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, playerName);
-            pstmt.executeUpdate();
-        }
+        Leaderboard board = leaderboard();
+        pool().write(conn -> {
+            insertPlayer(conn, playerName);
+            board.onPlayerAdded(playerName);
+            return null;
+        });
+    }
+
+    private void insertPlayer(PooledConnection connection, String playerName) throws SQLException {
+        PreparedStatement pstmt = connection.prepare("INSERT INTO players (name) VALUES (?)");
+        pstmt.setString(1, playerName);
+        pstmt.executeUpdate();
     }
 
     //Retrieves a player's current score
+    //Throws SQLException if there is no such player
     public int getPlayerScore(String playerName) throws SQLException {
         String sql = "SELECT score FROM players WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        return pool().read(conn -> {
+            PreparedStatement pstmt = conn.prepare(sql);
             pstmt.setString(1, playerName);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.getInt("score");
-        }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No player named " + playerName);
+                }
+                return rs.getInt("score");
+            }
+        });
     }
 
     //Updates a player's progress (current case and score)
     public void updatePlayerProgress(String playerName, int caseId, int score) throws SQLException {
         String sql = "UPDATE players SET current_case = ?, score = ? WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Leaderboard board = leaderboard();
+        pool().write(conn -> {
+            //Read the old score under the write lock so the leaderboard sees changes in commit order
+            PreparedStatement select = conn.prepare("SELECT score FROM players WHERE name = ?");
+            select.setString(1, playerName);
+            Integer oldScore;
+            try (ResultSet rs = select.executeQuery()) {
+                oldScore = rs.next() ? rs.getInt(1) : null;
+            }
+
+            PreparedStatement pstmt = conn.prepare(sql);
             pstmt.setInt(1, caseId);
             pstmt.setInt(2, score);
             pstmt.setString(3, playerName);
-            pstmt.executeUpdate();
+            if (pstmt.executeUpdate() > 0 && oldScore != null) {
+                board.onScoreChanged(playerName, oldScore, score);
+            }
+            return null;
+        });
+    }
+
+    //Gets the leaderboard, which is kept up to date by every score change made through this manager
+    public Leaderboard getLeaderboard() throws SQLException {
+        return leaderboard();
+    }
+
+    private Leaderboard leaderboard() throws SQLException {
+        if (leaderboard == null) {
+            throw new SQLException("Database is not available");
         }
+        return leaderboard;
     }
 
     //Saves the complete game state for a player
     public void saveGameState(String playerName, String currentRoom,
                               Map<String, Boolean> questionedSuspects, List<Clue> discoveredClues, Case currentCase)
             throws SQLException {
+        saveGameState(new SaveRequest(playerName, currentRoom, questionedSuspects, discoveredClues, currentCase));
+    }
 
-        System.out.println("[DB] Starting save for " + playerName + " in room " + currentRoom);
+    //Saves what changed in a player's game since the last save
+    //Only the rows for changed suspects, newly discovered clues and a moved room are written.
+    //A request carrying a case starts over: the player's old progress rows are cleared first.
+    public void saveGameState(SaveRequest request) throws SQLException {
+        String playerName = request.getPlayerName();
+        Log.debug("DB", () -> "Starting save for " + playerName + ": "
+                + request.getQuestionedSuspects().size() + " suspects, "
+                + request.getDiscoveredClues().size() + " clues"
+                + (request.getCurrentRoom() != null ? ", room " + request.getCurrentRoom() : "")
+                + (request.getCurrentCase() != null ? ", new case" : ""));
 
         try {
-            connection.setAutoCommit(false); // Start transaction
-
-            //Get or create player
-            int playerId = getPlayerId(playerName);
-            if (playerId == -1) {
-                System.out.println("[DB] Creating new player record");
-                createPlayer(playerName);
-                playerId = getPlayerId(playerName);
-            }
-            System.out.println("[DB] Using player ID: " + playerId);
-
-            //Save room state (using REPLACE to handle existing records)
-            String roomSQL = "INSERT OR REPLACE INTO game_state (player_id, current_room) VALUES (?, ?)";
-            try (PreparedStatement pstmt = connection.prepareStatement(roomSQL)) {
-                pstmt.setInt(1, playerId);
-                pstmt.setString(2, currentRoom);
-                int rows = pstmt.executeUpdate();
-                System.out.println("[DB] Room save affected " + rows + " rows");
-            }
-
-            // Save all other game state components
-            saveSuspectProgress(playerId, questionedSuspects);
-            saveClueProgress(playerId, discoveredClues);
-            saveCaseAndSuspects(playerId, currentCase);
-
-
-            connection.commit();
-            System.out.println("[DB] Save completed successfully");
+            //Whole save runs as one transaction on the writer connection
+            Leaderboard board = leaderboard();
+            pool().transaction(connection -> {
+                try {
+                    return writeChanges(connection, request);
+                } catch (SQLException | RuntimeException e) {
+                    //ids handed out inside this transaction are about to be rolled back
+                    ids.clear();
+                    throw e;
+                }
+            }, newPlayer -> {
+                if (newPlayer) {
+                    board.onPlayerAdded(playerName);
+                }
+            });
+            Log.debug("DB", "Save completed for {}", playerName);
         } catch (SQLException e) {
-            System.err.println("[DB ERROR] Save failed: " + e.getMessage());
-            connection.rollback();
+            Log.error("DB", "Save failed for {}: {}", playerName, e.getMessage());
             throw e;
-        } finally {
-            connection.setAutoCommit(true);
         }
     }
 
-    //Saves the current case and its suspects for a player
-    private void saveCaseAndSuspects(int playerId, Case currentCase) throws SQLException {
-        if (currentCase == null) return;
+    //Writes one save request, runs inside the save transaction
+    //Returns true if the player record had to be created
+    private boolean writeChanges(PooledConnection connection, SaveRequest request) throws SQLException {
+        String playerName = request.getPlayerName();
+
+        //Get or create player, along with the id of the case they have saved
+        int[] player = getPlayerAndCaseId(connection, playerName);
+        boolean created = player == null;
+        if (created) {
+            Log.debug("DB", "Creating new player record for {}", playerName);
+            insertPlayer(connection, playerName);
+            player = getPlayerAndCaseId(connection, playerName);
+        }
+        int playerId = player[0];
+        int caseId = player[1];
+        Log.debug("DB", "Using player ID: {}", playerId);
+
+        if (request.getCurrentCase() != null) {
+            caseId = ids.caseId(connection, request.getCurrentCase());
+            clearProgress(connection, playerId);
+            saveCaseAndSuspects(connection, playerId, caseId, request.getCurrentCase());
+        }
 
-        //Clear any existing case data for this player
-        String deleteSQL = " DELETE FROM saved_cases WHERE player_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)){
+        //Save room state, an upsert so the journal position survives a save that only moves
+        if (request.getCurrentRoom() != null) {
+            String roomSQL = "INSERT INTO game_state (player_id, current_room) VALUES (?, ?) " +
+                    "ON CONFLICT(player_id) DO UPDATE SET current_room = excluded.current_room";
+            PreparedStatement pstmt = connection.prepare(roomSQL);
             pstmt.setInt(1, playerId);
-            pstmt.executeUpdate();
+            pstmt.setString(2, request.getCurrentRoom());
+            int rows = pstmt.executeUpdate();
+            Log.debug("DB", "Room save affected {} rows", rows);
         }
-
-        //Insert new case data
-        String caseSQL = "INSERT INTO saved_cases (player_id, case_title, crime_scene, suspects_data) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(caseSQL)){
+        if (request.getProgress() != null) {
+            PreparedStatement pstmt = connection.prepare("INSERT INTO game_state (player_id, progress) VALUES (?, ?) " +
+                    "ON CONFLICT(player_id) DO UPDATE SET progress = excluded.progress");
             pstmt.setInt(1, playerId);
-            pstmt.setString(2, currentCase.getTitle());
-            pstmt.setString(3, currentCase.getCrimeScene());
-            pstmt.setString(4, serializeSuspects(currentCase.getSuspects()));
+            pstmt.setBytes(2, request.getProgress());
+            pstmt.executeUpdate();
+        }
+        if (request.getJournalSeq() >= 0) {
+            PreparedStatement pstmt = connection.prepare("UPDATE game_state SET journal_seq = ? WHERE player_id = ?");
+            pstmt.setLong(1, request.getJournalSeq());
+            pstmt.setInt(2, playerId);
             pstmt.executeUpdate();
         }
-    }
 
-    //Converts suspect list to serialized string for storage
-    private String serializeSuspects(List<Suspect> suspects){
-        StringBuilder sb = new StringBuilder();
-        for (Suspect s : suspects){
-            sb.append(s.getName()).append(";")
-                    .append(s.getDescription()).append(";")
-                    .append(s.isGuilty()).append("|");
+        // Save all other game state components
+        boolean hasProgress = !request.getQuestionedSuspects().isEmpty() || !request.getDiscoveredClues().isEmpty();
+        if (hasProgress && caseId == 0) {
+            throw new SQLException("No case saved for " + playerName + " to record progress against");
         }
-        return sb.toString();
+        saveSuspectProgress(connection, playerId, caseId, request.getQuestionedSuspects());
+        saveClueProgress(connection, playerId, caseId, request.getDiscoveredClues());
+        return created;
     }
 
-    //Converts serialized string back to suspect list
-    private List<Suspect> deserializeSuspects(String data){
-        List<Suspect> suspects = new ArrayList<>();
-        if (data == null || data.isEmpty()) {
-            return suspects;
-        }
+    //Removes a player's suspect and clue progress before a new case is saved over it
+    private void clearProgress(PooledConnection connection, int playerId) throws SQLException {
+        PreparedStatement suspects = connection.prepare("DELETE FROM suspect_progress WHERE player_id = ?");
+        suspects.setInt(1, playerId);
+        suspects.executeUpdate();
 
-        //Split serialized data and reconstruct suspects
-        String[] suspectEntries = data.split("\\|");
-        for (String entry : suspectEntries) {
-            if (entry.isEmpty()) continue;
-            String[] parts = entry.split(";");
-            if (parts.length >= 3) {
-                Suspect s = new Suspect(parts[0], parts[1], Boolean.parseBoolean(parts[2]));
-                suspects.add(s);
-            }
-        }
-        return suspects;
+        PreparedStatement clues = connection.prepare("DELETE FROM clue_progress WHERE player_id = ?");
+        clues.setInt(1, playerId);
+        clues.executeUpdate();
     }
 
+    //Saves the current case and its suspects for a player
+    //One upsert replaces any case already saved for this player, the case itself goes in as one CaseCodec blob
+    private void saveCaseAndSuspects(PooledConnection connection, int playerId, int caseId, Case currentCase)
+            throws SQLException {
+        String caseSQL = "INSERT OR REPLACE INTO saved_cases (player_id, case_title, crime_scene, suspects_data, case_data, case_id) " +
+                "VALUES (?, ?, '', '', ?, ?)";
+        PreparedStatement pstmt = connection.prepare(caseSQL);
+        pstmt.setInt(1, playerId);
+        pstmt.setString(2, currentCase.getTitle());
+        pstmt.setBytes(3, CaseCodec.encode(currentCase));
+        pstmt.setInt(4, caseId);
+        pstmt.executeUpdate();
+    }
 
-    //Saves which suspects have been questioned
-    private void saveSuspectProgress(int playerId, Map<String, Boolean> questionedSuspects)
-        throws SQLException {
-            String sql = "INSERT OR REPLACE INTO suspect_progress VALUES (?, ?, ?)";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)){
-                for (Map.Entry<String, Boolean> entry : questionedSuspects.entrySet()){
-                    pstmt.setInt(1, playerId);
-                    pstmt.setString(2, entry.getKey());
-                    pstmt.setBoolean(3, entry.getValue());
-                    pstmt.addBatch();
-                }
-                pstmt.executeBatch();
-            }
+    //Saves which suspects have been questioned, as (player, suspect id) pairs
+    private void saveSuspectProgress(PooledConnection connection, int playerId, int caseId,
+                                     Map<String, Boolean> questionedSuspects) throws SQLException {
+        if (questionedSuspects.isEmpty()) return;
+
+        //Resolve ids before starting the batch so the id lookups can't evict the batched statement
+        int[] suspectIds = new int[questionedSuspects.size()];
+        boolean[] questioned = new boolean[suspectIds.length];
+        int i = 0;
+        for (Map.Entry<String, Boolean> entry : questionedSuspects.entrySet()){
+            suspectIds[i] = ids.suspectId(connection, caseId, entry.getKey());
+            questioned[i++] = Boolean.TRUE.equals(entry.getValue());
         }
 
-
-        //Saves which clues have been discovered
-    private void saveClueProgress( int playerId, List<Clue> discoveredClues)
-    throws SQLException{
-        String sql = "INSERT OR REPLACE INTO clue_progress VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)){
-            for (Clue clue : discoveredClues) {
-                pstmt.setInt(1, playerId);
-                pstmt.setString (2, clue.getDescription());
-                pstmt.setBoolean(3, clue.isDiscovered());
-                pstmt.addBatch();
-            }
-            pstmt.executeBatch();
+        String sql = "INSERT OR REPLACE INTO suspect_progress (player_id, suspect_id, questioned) VALUES (?, ?, ?)";
+        PreparedStatement pstmt = connection.prepare(sql);
+        for (int j = 0; j < suspectIds.length; j++){
+            pstmt.setInt(1, playerId);
+            pstmt.setInt(2, suspectIds[j]);
+            pstmt.setBoolean(3, questioned[j]);
+            pstmt.addBatch();
         }
+        pstmt.executeBatch();
     }
 
-    //Loads the complete game state for a player
-    public GameState loadGameState(String playerName) throws SQLException {
-        System.out.println("[LOAD] Attempting to load game state for: " + playerName);
+    //Saves which clues have been discovered, as (player, clue id) pairs
+    private void saveClueProgress(PooledConnection connection, int playerId, int caseId, List<Clue> discoveredClues)
+            throws SQLException{
+        if (discoveredClues.isEmpty()) return;
 
-        int playerId = getPlayerId(playerName);
-        if (playerId == -1) {
-            System.out.println("[LOAD] No saved game found for player: " + playerName);
-            return null;
-        }
-
-        //Load all components of game state
-        String currentRoom = getCurrentRoom(playerId);
-        System.out.println("[LOAD] Retrieved current room: " + currentRoom);
-
-
-        Case currentCase = loadPlayerCase(playerId);
-        Map<String, Boolean> questionedSuspects = loadQuestionedSuspects(playerId);
-        List<Clue> discoveredClues = loadDiscoveredClues(playerId);
-
-        return new GameState(playerName, currentRoom, currentCase, questionedSuspects, discoveredClues);
-    }
-
-    //Loads the current case for a player
-    private Case loadPlayerCase (int playerId) throws SQLException{
-        String sql = "SELECT case_title, crime_scene, suspects_data FROM saved_cases WHERE player_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, playerId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                Case currentCase = new Case();
-                currentCase.setTitle(rs.getString("case_title"));
-                currentCase.setCrimeScene(rs.getString("crime_scene"));
-                currentCase.setSuspects(deserializeSuspects(rs.getString("suspects_data")));
-                return currentCase;
+        int[] clueIds = new int[discoveredClues.size()];
+        int count = 0;
+        for (Clue clue : discoveredClues) {
+            if (clue.isDiscovered()) {
+                clueIds[count++] = ids.clueId(connection, caseId, clue.getDescription());
             }
         }
-        return null;
-    }
 
-    //Loads which suspects have been questioned
-    private Map<String, Boolean> loadQuestionedSuspects(int playerId) throws SQLException{
-        Map<String, Boolean> suspects = new HashMap<>();
-        String sql = "SELECT suspect_name, questioned FROM suspect_progress WHERE player_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)){
+        String sql = "INSERT OR IGNORE INTO clue_progress (player_id, clue_id) VALUES (?, ?)";
+        PreparedStatement pstmt = connection.prepare(sql);
+        for (int j = 0; j < count; j++) {
             pstmt.setInt(1, playerId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()){
-                suspects.put(rs.getString("suspect_name"), rs.getBoolean("questioned"));
-            }
+            pstmt.setInt(2, clueIds[j]);
+            pstmt.addBatch();
         }
-        return suspects;
+        pstmt.executeBatch();
     }
 
+    //Pulls a player's whole saved game in one statement
+    //Row kind 0 is the player with their room, progress snapshot and case, kind 1 a suspect and kind 2 a discovered clue.
+    //Every part is looked up through an index, so the cost doesn't depend on how many players there are.
+    private static final String LOAD_GAME_SQL =
+            "SELECT 0 AS kind, p.id AS player_id, gs.current_room, gs.journal_seq, gs.progress, sc.case_title, " +
+                    "sc.crime_scene, sc.suspects_data, sc.case_data, NULL AS name, NULL AS flag " +
+            "FROM players p " +
+            "LEFT JOIN game_state gs ON gs.player_id = p.id " +
+            "LEFT JOIN saved_cases sc ON sc.player_id = p.id " +
+            "WHERE p.name = ? " +
+            "UNION ALL " +
+            "SELECT 1, sp.player_id, NULL, NULL, NULL, NULL, NULL, NULL, NULL, s.name, sp.questioned " +
+            "FROM players p JOIN suspect_progress sp ON sp.player_id = p.id " +
+            "JOIN suspects s ON s.id = sp.suspect_id " +
+            "WHERE p.name = ? " +
+            "UNION ALL " +
+            "SELECT 2, cp.player_id, NULL, NULL, NULL, NULL, NULL, NULL, NULL, c.description, TRUE " +
+            "FROM players p JOIN clue_progress cp ON cp.player_id = p.id " +
+            "JOIN clues c ON c.id = cp.clue_id " +
+            "WHERE p.name = ?";
 
-    //Loads which clues have been discovered
-    private List<Clue> loadDiscoveredClues(int playerId) throws SQLException{
-        List<Clue> clues = new ArrayList<>();
-        String sql = "SELECT clue_description FROM clue_progress WHERE player_id = ? AND discovered = TRUE";
+    //Loads the complete game state for a player
+    //Everything comes back from one query, which SQLite runs against a single consistent snapshot
+    public GameState loadGameState(String playerName) throws SQLException {
+        Log.debug("LOAD", "Attempting to load game state for: {}", playerName);
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)){
-            pstmt.setInt(1, playerId);
-            ResultSet rs = pstmt.executeQuery();
+        //Loads run on a reader connection so they don't wait behind a save in progress
+        boolean[] legacyCase = {false};
+        GameState state = pool().read(connection -> {
+            PreparedStatement pstmt = connection.prepare(LOAD_GAME_SQL);
+            pstmt.setString(1, playerName);
+            pstmt.setString(2, playerName);
+            pstmt.setString(3, playerName);
 
-            while (rs.next()){
-                clues.add(new Clue(rs.getString("clue_description"), true));
+            boolean playerFound = false;
+            String currentRoom = null;
+            long journalSeq = 0;
+            byte[] progress = null;
+            Case currentCase = null;
+            Map<String, Boolean> questionedSuspects = new HashMap<>();
+            List<Clue> discoveredClues = new ArrayList<>();
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    switch (rs.getInt("kind")) {
+                        case 0:
+                            playerFound = true;
+                            currentRoom = rs.getString("current_room");
+                            journalSeq = rs.getLong("journal_seq");
+                            progress = rs.getBytes("progress");
+                            currentCase = readCase(rs, legacyCase);
+                            break;
+                        case 1:
+                            questionedSuspects.put(rs.getString("name"), rs.getBoolean("flag"));
+                            break;
+                        case 2:
+                            discoveredClues.add(new Clue(rs.getString("name"), true));
+                            break;
+                        default:
+                            break;
+                    }
+                }
             }
-        }
-        return clues;
-    }
 
-    //Gets the current room for a player and returns the name of the current room
-    private String getCurrentRoom(int playerId) throws SQLException {
-        String sql = "SELECT current_room FROM game_state WHERE player_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, playerId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                String room = rs.getString("current_room");
-                System.out.println("[LOAD] Found room in database: " + room);
-                return room;
+            if (!playerFound) {
+                Log.debug("LOAD", "No saved game found for player: {}", playerName);
+                return null;
             }
-        }
-        System.out.println("[LOAD] No room found in database, using default");
-        return "Engine Room"; // Fallback
-    }
+            if (currentRoom == null) {
+                Log.warn("LOAD", "No room found in database for {}, using default", playerName);
+                currentRoom = "Engine Room"; // Fallback
+            }
+            Log.debug("LOAD", "Retrieved current room: {}", currentRoom);
 
-    //Gets the database ID for a player name
-    private int getPlayerId(String playerName) throws SQLException {
-        String sql = "SELECT id FROM players WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, playerName);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next() ? rs.getInt("id") : -1;
+            return new GameState(playerName, currentRoom, currentCase, questionedSuspects, discoveredClues,
+                    journalSeq, progress);
+        });
+
+        //Rows saved in the old text format are rewritten as a blob the first time they're loaded
+        if (legacyCase[0] && state != null && state.getCurrentCase() != null) {
+            migrateLegacyCase(playerName, state.getCurrentCase());
         }
+        return state;
     }
 
-    //Prints debug information about current database state
-    public void debugPrintGameState() throws SQLException {
-        System.out.println("\n=== DATABASE DEBUG INFO ===");
-
-        //Print all players
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM players")) {
-            System.out.println("Players:");
-            while (rs.next()) {
-                System.out.println("ID: " + rs.getInt("id") +
-                        ", Name: " + rs.getString("name"));
+    //Builds the saved case from the player row of the load query, or null if none was saved
+    //Sets legacyCase[0] if the row is still in the old text format
+    private Case readCase(ResultSet rs, boolean[] legacyCase) throws SQLException {
+        byte[] data = rs.getBytes("case_data");
+        if (CaseCodec.isEncoded(data)) {
+            try {
+                return CaseCodec.decode(data);
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("Saved case is damaged: " + e.getMessage(), e);
             }
         }
 
-        //Print all game states
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM game_state")) {
-            System.out.println("Game States:");
-            while (rs.next()) {
-                System.out.println("Player ID: " + rs.getInt("player_id") +
-                        ", Room: " + rs.getString("current_room"));
-            }
+        String title = rs.getString("case_title");
+        if (title == null) {
+            return null;
         }
+        Case currentCase = new Case();
+        currentCase.setTitle(title);
+        currentCase.setCrimeScene(rs.getString("crime_scene"));
+        currentCase.setSuspects(LegacyCaseFormat.deserializeSuspects(rs.getString("suspects_data")));
+        legacyCase[0] = true;
+        return currentCase;
+    }
 
-        System.out.println("=== END DEBUG INFO ===\n");
+    //Rewrites a player's text-format saved case in the binary format
+    private void migrateLegacyCase(String playerName, Case legacyCase) throws SQLException {
+        Log.info("LOAD", "Migrating saved case for {} to the binary format", playerName);
+        pool().write(connection -> {
+            String sql = "UPDATE saved_cases SET case_data = ?, crime_scene = '', suspects_data = '' " +
+                    "WHERE player_id = (SELECT id FROM players WHERE name = ?) AND case_data IS NULL";
+            PreparedStatement pstmt = connection.prepare(sql);
+            pstmt.setBytes(1, CaseCodec.encode(legacyCase));
+            pstmt.setString(2, playerName);
+            pstmt.executeUpdate();
+            return null;
+        });
     }
 
-    //Verifies that a player's game state was saved correctly
-    public void verifySave(String playerName) throws SQLException {
-        System.out.println("\n=== DATABASE VERIFICATION ===");
+    //Gets a player's id and the id of their saved case (0 if none) in one lookup, or null if the player is new
+    private int[] getPlayerAndCaseId(PooledConnection connection, String playerName) throws SQLException {
+        String sql = "SELECT p.id, sc.case_id FROM players p LEFT JOIN saved_cases sc ON sc.player_id = p.id " +
+                "WHERE p.name = ?";
+        PreparedStatement pstmt = connection.prepare(sql);
+        pstmt.setString(1, playerName);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? new int[]{rs.getInt(1), rs.getInt(2)} : null;
+        }
+    }
 
-        int playerId = getPlayerId(playerName);
-        if (playerId == -1) {
-            System.out.println("Player not found!");
-            return;
+    //Prepared statement cache counters over all pooled connections, as {hits, misses}
+    public long[] getStatementCacheStats() {
+        if (pool == null) {
+            return new long[]{0, 0};
         }
+        return new long[]{pool.getStatementCacheHits(), pool.getStatementCacheMisses()};
+    }
 
-        String sql = "SELECT current_room FROM game_state WHERE player_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, playerId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                System.out.println("Saved room: " + rs.getString("current_room"));
-            } else {
-                System.out.println("No room saved for this player");
-            }
+    //Connection pool contention as {reader borrows, reader waits, reader wait ns, writer locks, writer waits, writer wait ns}
+    public long[] getPoolContentionStats() {
+        if (pool == null) {
+            return new long[6];
         }
-        System.out.println("=== VERIFICATION COMPLETE ===\n");
+        return new long[]{pool.getReaderBorrows(), pool.getReaderWaits(), pool.getReaderWaitNanos(),
+                pool.getWriterLocks(), pool.getWriterWaits(), pool.getWriterWaitNanos()};
     }
 
-//Closes the database connection
+//Closes every pooled database connection
     public void closeConnection(){
-        try {
-            if (connection != null) {
-                connection.close();
-            }
-        }catch (SQLException e){
-            System.err.println("Error closing connection: " + e.getMessage());
+        if (pool != null) {
+            pool.close();
         }
     }
 }
@@ -0,0 +1,217 @@
+package data;
+
+import Model.LeaderboardEntry;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Player rankings by score
+ *
+ * Keeps the best TOP_K players in a sorted set and a count of players per score in a ScoreHistogram,
+ * both updated in place on every score change, so top-N and rank queries never touch the database.
+ * Pages deeper than the top set are read through the (score DESC, name) index, starting at the
+ * exact score the histogram says the page begins with instead of counting through an OFFSET.
+ * Players are ordered by score, highest first, then by name.
+ */
+public class Leaderboard {
+    public static final int TOP_K = 1000;
+
+    private static final Comparator<Ranked> ORDER =
+            Comparator.comparingInt((Ranked r) -> -r.score).thenComparing(r -> r.name);
+
+    private final ConnectionPool pool;
+    private final ScoreHistogram histogram = new ScoreHistogram();
+    private final TreeSet<Ranked> top = new TreeSet<>(ORDER);
+    private final Map<String, Ranked> topByName = new HashMap<>();
+    //Set when a top player drops and someone outside the set may now belong in it
+    private boolean topStale;
+
+    //Builds the histogram and the top set from the players table
+    Leaderboard(ConnectionPool pool) throws SQLException {
+        this.pool = pool;
+        pool.read(conn -> {
+            PreparedStatement pstmt = conn.prepare("SELECT score, COUNT(*) FROM players GROUP BY score");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    histogram.add(rs.getInt(1), rs.getLong(2));
+                }
+            }
+            return null;
+        });
+        refillTop();
+    }
+
+    //Records a new player, who starts on the default score of zero
+    synchronized void onPlayerAdded(String playerName) {
+        histogram.add(0, 1);
+        offer(playerName, 0);
+    }
+
+    //Records a score change that has already been committed
+    synchronized void onScoreChanged(String playerName, int oldScore, int newScore) {
+        if (oldScore == newScore) return;
+        histogram.add(oldScore, -1);
+        histogram.add(newScore, 1);
+
+        Ranked current = topByName.remove(playerName);
+        if (current != null) {
+            top.remove(current);
+        }
+        if (newScore < oldScore && current != null) {
+            //Only keep them if nobody outside the set now outranks them
+            long above = histogram.countAbove(newScore);
+            if (above > countInTopAbove(newScore)) {
+                topStale = true;
+                return;
+            }
+        }
+        offer(playerName, newScore);
+    }
+
+    //Adds a player to the top set if they make the cut
+    private void offer(String playerName, int score) {
+        Ranked r = new Ranked(playerName, score);
+        //The set only has room to spare when it already holds every player
+        if (top.size() < TOP_K) {
+            insert(r);
+            return;
+        }
+        if (ORDER.compare(r, top.last()) < 0) {
+            insert(r);
+            Ranked evicted = top.pollLast();
+            topByName.remove(evicted.name);
+        }
+    }
+
+    private void insert(Ranked r) {
+        top.add(r);
+        topByName.put(r.name, r);
+    }
+
+    //Players in the top set scoring strictly more than this score
+    private long countInTopAbove(int score) {
+        return top.headSet(new Ranked("", score), false).size();
+    }
+
+    //Best n players, n at most TOP_K
+    public synchronized List<LeaderboardEntry> top(int n) throws SQLException {
+        if (topStale) {
+            refillTop();
+        }
+        List<LeaderboardEntry> result = new ArrayList<>(Math.min(n, top.size()));
+        for (Ranked r : top) {
+            if (result.size() >= n) break;
+            result.add(new LeaderboardEntry(r.name, r.score, rankOfScore(r.score)));
+        }
+        return result;
+    }
+
+    //Rank of a player, or -1 if there's no such player
+    public synchronized int rankOf(String playerName) throws SQLException {
+        Ranked r = topByName.get(playerName);
+        if (r != null && !topStale) {
+            return rankOfScore(r.score);
+        }
+        Integer score = pool.read(conn -> {
+            PreparedStatement pstmt = conn.prepare("SELECT score FROM players WHERE name = ?");
+            pstmt.setString(1, playerName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        });
+        return score == null ? -1 : rankOfScore(score);
+    }
+
+    //Rank shared by everyone on this score
+    public synchronized int rankOfScore(int score) {
+        return (int) histogram.countAbove(score) + 1;
+    }
+
+    public synchronized long playerCount() {
+        return histogram.total();
+    }
+
+    //One page of the leaderboard, page numbers start at 0
+    public synchronized List<LeaderboardEntry> page(int page, int pageSize) throws SQLException {
+        long first = (long) page * pageSize + 1;
+        if (page < 0 || pageSize < 1 || first > histogram.total()) {
+            return new ArrayList<>();
+        }
+        if (topStale) {
+            refillTop();
+        }
+
+        //Served from memory while the page lies inside the top set
+        if (first + pageSize - 1 <= top.size()) {
+            List<LeaderboardEntry> result = new ArrayList<>(pageSize);
+            long position = 0;
+            for (Ranked r : top) {
+                position++;
+                if (position < first) continue;
+                if (result.size() >= pageSize) break;
+                result.add(new LeaderboardEntry(r.name, r.score, rankOfScore(r.score)));
+            }
+            return result;
+        }
+
+        //Seek straight to the page's first score, only players tied on it need skipping
+        int startScore = histogram.scoreAtRank(first);
+        long skip = first - 1 - histogram.countAbove(startScore);
+        return pool.read(conn -> {
+            PreparedStatement pstmt = conn.prepare(
+                    "SELECT name, score FROM players WHERE score <= ? ORDER BY score DESC, name LIMIT ? OFFSET ?");
+            pstmt.setInt(1, startScore);
+            pstmt.setInt(2, pageSize);
+            pstmt.setLong(3, skip);
+            List<LeaderboardEntry> result = new ArrayList<>(pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int score = rs.getInt("score");
+                    result.add(new LeaderboardEntry(rs.getString("name"), score, rankOfScore(score)));
+                }
+            }
+            return result;
+        });
+    }
+
+    //Reloads the top set from the score index
+    private void refillTop() throws SQLException {
+        List<Ranked> best = pool.read(conn -> {
+            PreparedStatement pstmt = conn.prepare("SELECT name, score FROM players ORDER BY score DESC, name LIMIT ?");
+            pstmt.setInt(1, TOP_K);
+            List<Ranked> rows = new ArrayList<>(TOP_K);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Ranked(rs.getString("name"), rs.getInt("score")));
+                }
+            }
+            return rows;
+        });
+        synchronized (this) {
+            top.clear();
+            topByName.clear();
+            for (Ranked r : best) {
+                insert(r);
+            }
+            topStale = false;
+        }
+    }
+
+    private static final class Ranked {
+        final String name;
+        final int score;
+
+        Ranked(String name, int score) {
+            this.name = name;
+            this.score = score;
+        }
+    }
+}
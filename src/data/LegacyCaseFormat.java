@@ -0,0 +1,45 @@
+package data;
+
+import Model.Suspect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The original text format for saved suspects ("name;description;guilty|" per suspect)
+//Only kept so rows saved before the binary CaseCodec can still be read and migrated
+final class LegacyCaseFormat {
+
+    private LegacyCaseFormat() {
+    }
+
+    //Converts suspect list to serialized string for storage
+    static String serializeSuspects(List<Suspect> suspects){
+        StringBuilder sb = new StringBuilder();
+        for (Suspect s : suspects){
+            sb.append(s.getName()).append(";")
+                    .append(s.getDescription()).append(";")
+                    .append(s.isGuilty()).append("|");
+        }
+        return sb.toString();
+    }
+
+    //Converts serialized string back to suspect list
+    static List<Suspect> deserializeSuspects(String data){
+        List<Suspect> suspects = new ArrayList<>();
+        if (data == null || data.isEmpty()) {
+            return suspects;
+        }
+
+        //Split serialized data and reconstruct suspects
+        String[] suspectEntries = data.split("\\|");
+        for (String entry : suspectEntries) {
+            if (entry.isEmpty()) continue;
+            String[] parts = entry.split(";");
+            if (parts.length >= 3) {
+                Suspect s = new Suspect(parts[0], parts[1], Boolean.parseBoolean(parts[2]));
+                suspects.add(s);
+            }
+        }
+        return suspects;
+    }
+}
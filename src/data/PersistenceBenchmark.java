@@ -0,0 +1,300 @@
+package data;
+
+import Model.Case;
+import Model.Clue;
+import Model.Difficulty;
+import Model.Suspect;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for saving and loading games and for the saved case formats
+ *
+ * Each scenario runs against a fresh temporary SQLite file, seeded with the given number of players,
+ * each holding a case with the given number of suspects and clues. Every operation is warmed up and
+ * then timed one call at a time, and the report shows throughput, latency percentiles and bytes
+ * allocated per call on the benchmark thread.
+ *
+ * Usage: java data.PersistenceBenchmark [suspects=5,50] [clues=10,100] [players=1,100]
+ *        [warmup=2] [measure=5] [csv=results.csv] [baseline=old.csv] [tolerance=10]
+ * Lists run every combination. warmup and measure are seconds per operation.
+ * With baseline=, throughput is compared to an earlier csv= run and the exit code is 1 if any
+ * operation got more than tolerance percent slower.
+ */
+public class PersistenceBenchmark {
+
+    //One timed call, i counts up from 0 across warmup and measurement
+    private interface Op {
+        void run(int i) throws Exception;
+    }
+
+    private static final String[] ROOMS = {"Engine Room", "Bridge", "Medical Bay", "Crew Quarters", "Cargo Bay"};
+
+    //Results land here so the JIT can't throw the work away
+    private static volatile Object sink;
+
+    private final int warmupSeconds;
+    private final int measureSeconds;
+    private final List<Result> results = new ArrayList<>();
+
+    public PersistenceBenchmark(int warmupSeconds, int measureSeconds) {
+        this.warmupSeconds = warmupSeconds;
+        this.measureSeconds = measureSeconds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int[] suspects = parseList(options.getOrDefault("suspects", "5,50"));
+        int[] clues = parseList(options.getOrDefault("clues", "10,100"));
+        int[] players = parseList(options.getOrDefault("players", "1,100"));
+
+        PersistenceBenchmark benchmark = new PersistenceBenchmark(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("measure", "5")));
+
+        System.out.printf("%-20s %8s %6s %7s %12s %10s %10s %10s %12s%n",
+                "operation", "suspects", "clues", "players", "ops/s", "p50 us", "p99 us", "p999 us", "B/op");
+        for (int s : suspects) {
+            for (int c : clues) {
+                for (int p : players) {
+                    benchmark.runScenario(s, c, p);
+                }
+            }
+        }
+
+        if (options.containsKey("csv")) {
+            benchmark.writeCsv(Paths.get(options.get("csv")));
+        }
+        if (options.containsKey("baseline")) {
+            double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "10"));
+            if (!benchmark.compareTo(Paths.get(options.get("baseline")), tolerance)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    //Runs every operation for one combination of suspects, clues and players
+    public void runScenario(int suspectCount, int clueCount, int playerCount) throws Exception {
+        Case benchCase = buildCase(suspectCount, clueCount);
+        byte[] encoded = CaseCodec.encode(benchCase);
+        String legacy = LegacyCaseFormat.serializeSuspects(benchCase.getSuspects());
+
+        //Case formats, no database involved
+        measure("codec-encode", suspectCount, clueCount, playerCount, i -> sink = CaseCodec.encode(benchCase));
+        measure("codec-decode", suspectCount, clueCount, playerCount, i -> sink = CaseCodec.decode(encoded));
+        measure("legacy-serialize", suspectCount, clueCount, playerCount,
+                i -> sink = LegacyCaseFormat.serializeSuspects(benchCase.getSuspects()));
+        measure("legacy-deserialize", suspectCount, clueCount, playerCount,
+                i -> sink = LegacyCaseFormat.deserializeSuspects(legacy));
+
+        Path file = Files.createTempFile("detective-bench", ".db");
+        DatabaseManager db = new DatabaseManager("jdbc:sqlite:" + file, ConnectionPool.DEFAULT_READERS);
+        try {
+            //Every player starts with the whole case saved and half the clues found
+            for (int p = 0; p < playerCount; p++) {
+                db.saveGameState(fullSave(player(p), benchCase, p));
+            }
+
+            measure("save-full", suspectCount, clueCount, playerCount,
+                    i -> db.saveGameState(fullSave(player(i % playerCount), benchCase, i)));
+            measure("save-delta", suspectCount, clueCount, playerCount, i -> {
+                Suspect suspect = benchCase.getSuspects().get(i % suspectCount);
+                //the case's own clues aren't discovered and a save skips undiscovered clues
+                Clue clue = new Clue(benchCase.getClues().get(i % clueCount).getDescription(), true);
+                db.saveGameState(new SaveRequest(player(i % playerCount), ROOMS[i % ROOMS.length],
+                        Collections.singletonMap(suspect.getName(), true),
+                        Collections.singletonList(clue), null));
+            });
+            measure("load", suspectCount, clueCount, playerCount,
+                    i -> sink = db.loadGameState(player(i % playerCount)));
+        } finally {
+            db.closeConnection();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Paths.get(file + "-wal"));
+            Files.deleteIfExists(Paths.get(file + "-shm"));
+        }
+    }
+
+    //Warms an operation up, then times each call until the measurement time runs out
+    private void measure(String name, int suspects, int clues, int players, Op op) throws Exception {
+        int i = 0;
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        while (System.nanoTime() < warmupEnd) {
+            op.run(i++);
+        }
+
+        long[] latencies = new long[1024];
+        int count = 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(measureSeconds);
+        long now = start;
+        while (now < end) {
+            op.run(i++);
+            long after = System.nanoTime();
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = after - now;
+            now = after;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Arrays.sort(latencies, 0, count);
+        Result result = new Result(name, suspects, clues, players,
+                count == 0 ? 0 : count / ((now - start) / 1e9),
+                percentile(latencies, count, 0.50),
+                percentile(latencies, count, 0.99),
+                percentile(latencies, count, 0.999),
+                allocated < 0 || count == 0 ? -1 : allocated / count);
+        results.add(result);
+        System.out.printf("%-20s %8d %6d %7d %12.1f %10.1f %10.1f %10.1f %12d%n",
+                name, suspects, clues, players, result.opsPerSecond,
+                result.p50Nanos / 1e3, result.p99Nanos / 1e3, result.p999Nanos / 1e3, result.bytesPerOp);
+    }
+
+    private static long percentile(long[] sorted, int count, double p) {
+        int index = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    //Bytes allocated so far by this thread, or -1 if the JVM can't tell
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static String player(int index) {
+        return "bench-player-" + index;
+    }
+
+    private static Case buildCase(int suspectCount, int clueCount) {
+        List<Suspect> suspects = new ArrayList<>(suspectCount);
+        for (int s = 0; s < suspectCount; s++) {
+            suspects.add(new Suspect("Suspect " + s, "Crew member number " + s + " of the ship", s == 0));
+        }
+        List<Clue> clues = new ArrayList<>(clueCount);
+        for (int c = 0; c < clueCount; c++) {
+            clues.add(new Clue("Clue " + c + " found somewhere on the ship", false));
+        }
+        return new Case("Benchmark Case", "Engine Room", suspects, clues, Difficulty.MEDIUM);
+    }
+
+    //A new-game save carrying the case, every suspect and half the clues
+    private static SaveRequest fullSave(String playerName, Case benchCase, int seed) {
+        Map<String, Boolean> questioned = new LinkedHashMap<>();
+        for (int s = 0; s < benchCase.getSuspects().size(); s++) {
+            questioned.put(benchCase.getSuspects().get(s).getName(), (s + seed) % 2 == 0);
+        }
+        List<Clue> found = new ArrayList<>();
+        for (int c = 0; c < benchCase.getClues().size(); c += 2) {
+            Clue clue = benchCase.getClues().get(c);
+            found.add(new Clue(clue.getDescription(), true));
+        }
+        return new SaveRequest(playerName, ROOMS[seed % ROOMS.length], questioned, found, benchCase);
+    }
+
+    private void writeCsv(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("operation,suspects,clues,players,ops_per_sec,p50_ns,p99_ns,p999_ns,bytes_per_op");
+            for (Result r : results) {
+                out.println(r.name + "," + r.suspects + "," + r.clues + "," + r.players + ","
+                        + r.opsPerSecond + "," + r.p50Nanos + "," + r.p99Nanos + "," + r.p999Nanos + ","
+                        + r.bytesPerOp);
+            }
+        }
+    }
+
+    //Prints the throughput change against an earlier run, returns false if anything regressed past the tolerance
+    private boolean compareTo(Path baseline, double tolerancePercent) throws IOException {
+        Map<String, Double> before = new HashMap<>();
+        List<String> lines = Files.readAllLines(baseline, StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split(",");
+            if (parts.length < 5) continue;
+            before.put(parts[0] + "," + parts[1] + "," + parts[2] + "," + parts[3], Double.parseDouble(parts[4]));
+        }
+
+        boolean ok = true;
+        System.out.println();
+        System.out.println("Change in throughput against " + baseline + ":");
+        for (Result r : results) {
+            Double old = before.get(r.key());
+            if (old == null || old == 0) continue;
+            double change = (r.opsPerSecond - old) / old * 100;
+            boolean regressed = change < -tolerancePercent;
+            ok &= !regressed;
+            System.out.printf("%-20s %8d %6d %7d %+8.1f%%%s%n", r.name, r.suspects, r.clues, r.players,
+                    change, regressed ? "  REGRESSION" : "");
+        }
+        return ok;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int[] parseList(String value) {
+        String[] parts = value.split(",");
+        int[] numbers = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            numbers[i] = Integer.parseInt(parts[i].trim());
+        }
+        return numbers;
+    }
+
+    //One row of the report
+    private static class Result {
+        final String name;
+        final int suspects, clues, players;
+        final double opsPerSecond;
+        final long p50Nanos, p99Nanos, p999Nanos;
+        final long bytesPerOp;
+
+        Result(String name, int suspects, int clues, int players, double opsPerSecond,
+               long p50Nanos, long p99Nanos, long p999Nanos, long bytesPerOp) {
+            this.name = name;
+            this.suspects = suspects;
+            this.clues = clues;
+            this.players = players;
+            this.opsPerSecond = opsPerSecond;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        String key() {
+            return name + "," + suspects + "," + clues + "," + players;
+        }
+    }
+}
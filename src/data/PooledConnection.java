@@ -0,0 +1,43 @@
+package data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//A connection owned by the ConnectionPool together with its prepared statement cache
+//Statements from prepare() belong to the cache: callers close their ResultSets but never the statement
+public class PooledConnection {
+    private final Connection connection;
+    private final StatementCache statements;
+
+    PooledConnection(Connection connection, StatementCache statements) {
+        this.connection = connection;
+        this.statements = statements;
+    }
+
+    //Gets a cached prepared statement for this SQL, parameters already cleared
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return statements.prepare(sql);
+    }
+
+    //Plain statement for one-off SQL such as schema changes, the caller closes it
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    //The underlying connection, for transaction control
+    Connection raw() {
+        return connection;
+    }
+
+    boolean isClosed() throws SQLException {
+        return connection.isClosed();
+    }
+
+    //Closes the cached statements and then the connection
+    void close() throws SQLException {
+        statements.close();
+        connection.close();
+    }
+}
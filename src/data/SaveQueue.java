@@ -0,0 +1,208 @@
+package data;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Write-behind save pipeline
+//Saves are queued and written by a small bounded pool of background workers so the caller returns straight away.
+//A save queued while another one for the same player is still waiting is merged into it, so both go out as one write.
+public class SaveQueue {
+
+    //Callbacks for the outcome of a queued save, called on a save worker thread
+    public interface SaveListener {
+        void onSaveComplete(String playerName, long latencyMillis);
+        void onSaveFailed(String playerName, Exception error);
+    }
+
+    public static final int DEFAULT_WORKERS = 2;
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final int LOCK_STRIPES = 64;
+
+    private final DatabaseManager dbManager;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Object[] playerLocks = new Object[LOCK_STRIPES];
+
+    //metrics
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile long lastLatencyNanos;
+
+    public SaveQueue(DatabaseManager dbManager) {
+        this(dbManager, DEFAULT_WORKERS, DEFAULT_CAPACITY);
+    }
+
+    public SaveQueue(DatabaseManager dbManager, int workers, int capacity) {
+        this.dbManager = dbManager;
+        for (int i = 0; i < playerLocks.length; i++) {
+            playerLocks[i] = new Object();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                r -> {
+                    Thread t = new Thread(r, "save-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    //Queues a save and returns immediately
+    //If a save for the same player is still waiting the two are merged
+    public void submit(SaveRequest request, SaveListener listener) {
+        String playerName = request.getPlayerName();
+        boolean[] isNew = {false};
+        pending.compute(playerName, (name, waiting) -> {
+            if (waiting == null) {
+                isNew[0] = true;
+                return new Pending(request, listener);
+            }
+            coalesced.incrementAndGet();
+            return waiting.mergedWith(request, listener);
+        });
+
+        //A drain task is already scheduled for this player, it will pick up the merged request
+        if (!isNew[0]) return;
+
+        try {
+            executor.execute(() -> drain(playerName));
+        } catch (RejectedExecutionException e) {
+            Pending dropped = pending.remove(playerName);
+            if (dropped != null) {
+                failed.incrementAndGet();
+                dropped.notifyFailed(playerName, new SQLException("Save queue is full", e));
+            }
+        }
+    }
+
+    //Writes the waiting request for a player
+    //Holding the player's lock keeps saves for one player in order even if two drains get scheduled
+    private void drain(String playerName) {
+        synchronized (lockFor(playerName)) {
+            Pending next = pending.remove(playerName);
+            if (next == null) return;
+
+            SaveRequest request = next.request;
+            try {
+                dbManager.saveGameState(request);
+
+                long latency = System.nanoTime() - next.firstQueuedNanos;
+                recordLatency(latency);
+                completed.incrementAndGet();
+                next.notifyComplete(playerName, TimeUnit.NANOSECONDS.toMillis(latency));
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                next.notifyFailed(playerName, e);
+            }
+        }
+    }
+
+    private Object lockFor(String playerName) {
+        return playerLocks[(playerName.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private void recordLatency(long latencyNanos) {
+        lastLatencyNanos = latencyNanos;
+        totalLatencyNanos.addAndGet(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    //Number of players with a save waiting to be written
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    //Number of saves that were merged into an earlier waiting save
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    //Latency is measured from when a save was first queued until it was committed
+    public long getLastLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    public double getAverageLatencyMillis() {
+        long count = completed.get();
+        return count == 0 ? 0.0 : totalLatencyNanos.get() / 1_000_000.0 / count;
+    }
+
+    //Stops accepting saves and waits for the queued ones to be written
+    //Returns false if the queue didn't empty in time
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    //A waiting save plus everyone who asked for it
+    //The latency clock starts at the first request so coalescing doesn't hide time spent queued
+    private static class Pending {
+        private final SaveRequest request;
+        private final List<SaveListener> listeners;
+        private final long firstQueuedNanos;
+
+        Pending(SaveRequest request, SaveListener listener) {
+            this.request = request;
+            this.listeners = new ArrayList<>(1);
+            if (listener != null) {
+                listeners.add(listener);
+            }
+            this.firstQueuedNanos = request.getCreatedNanos();
+        }
+
+        private Pending(SaveRequest request, List<SaveListener> listeners, long firstQueuedNanos) {
+            this.request = request;
+            this.listeners = listeners;
+            this.firstQueuedNanos = firstQueuedNanos;
+        }
+
+        Pending mergedWith(SaveRequest newer, SaveListener listener) {
+            List<SaveListener> merged = new ArrayList<>(listeners);
+            if (listener != null && !merged.contains(listener)) {
+                merged.add(listener);
+            }
+            return new Pending(request.mergedWith(newer), merged, firstQueuedNanos);
+        }
+
+        void notifyComplete(String playerName, long latencyMillis) {
+            for (SaveListener l : listeners) {
+                l.onSaveComplete(playerName, latencyMillis);
+            }
+        }
+
+        void notifyFailed(String playerName, Exception error) {
+            for (SaveListener l : listeners) {
+                l.onSaveFailed(playerName, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package data;
+
+import Model.Case;
+import Model.Clue;
+import Model.Suspect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Immutable copy of what changed in one player's game since the last save, taken on the UI thread
+//and saved in the background. The copies (the case too, down to its suspects and clues) mean the game
+//can keep changing while the save waits in the queue.
+//A null room or case means it hasn't changed. A case means a new game, so the saved progress is replaced
+//with what this request carries instead of being added to. The journal sequence number is the last
+//SessionJournal record the save includes, or -1 for a game that isn't journalled. The progress is a
+//SessionProgress snapshot of the whole game, or null to leave the saved one alone.
+public class SaveRequest {
+    private final String playerName;
+    private final String currentRoom;
+    private final Map<String, Boolean> questionedSuspects;
+    private final List<Clue> discoveredClues;
+    private final Case currentCase;
+    private final long journalSeq;
+    private final byte[] progress;
+    private final long createdNanos;
+
+    //constructor
+    public SaveRequest(String playerName, String currentRoom, Map<String, Boolean> questionedSuspects,
+                       List<Clue> discoveredClues, Case currentCase) {
+        this(playerName, currentRoom, questionedSuspects, discoveredClues, currentCase, -1);
+    }
+
+    public SaveRequest(String playerName, String currentRoom, Map<String, Boolean> questionedSuspects,
+                       List<Clue> discoveredClues, Case currentCase, long journalSeq) {
+        this(playerName, currentRoom, questionedSuspects, discoveredClues, currentCase, journalSeq, null);
+    }
+
+    public SaveRequest(String playerName, String currentRoom, Map<String, Boolean> questionedSuspects,
+                       List<Clue> discoveredClues, Case currentCase, long journalSeq, byte[] progress) {
+        this(playerName, currentRoom, new LinkedHashMap<>(questionedSuspects), copyClues(discoveredClues),
+                copyCase(currentCase), journalSeq, progress, System.nanoTime());
+    }
+
+    private SaveRequest(String playerName, String currentRoom, Map<String, Boolean> questionedSuspects,
+                        List<Clue> discoveredClues, Case currentCase, long journalSeq, byte[] progress,
+                        long createdNanos) {
+        this.playerName = playerName;
+        this.currentRoom = currentRoom;
+        this.questionedSuspects = Collections.unmodifiableMap(questionedSuspects);
+        this.discoveredClues = Collections.unmodifiableList(discoveredClues);
+        this.currentCase = currentCase;
+        this.journalSeq = journalSeq;
+        this.progress = progress;
+        this.createdNanos = createdNanos;
+    }
+
+    private static List<Clue> copyClues(List<Clue> clues) {
+        List<Clue> copies = new ArrayList<>(clues.size());
+        for (Clue clue : clues) {
+            copies.add(new Clue(clue.getDescription(), clue.isDiscovered()));
+        }
+        return copies;
+    }
+
+    private static Case copyCase(Case c) {
+        if (c == null) return null;
+        List<Suspect> suspects = new ArrayList<>(c.getSuspects().size());
+        for (Suspect s : c.getSuspects()) {
+            suspects.add(new Suspect(s.getName(), s.getDescription(), s.isGuilty()));
+        }
+        List<Clue> clues = c.getClues() != null ? copyClues(c.getClues()) : new ArrayList<>();
+        return new Case(c.getTitle(), c.getCrimeScene(), suspects, clues, c.getDifficulty());
+    }
+
+    //Combines this request with a newer one for the same player into a single write
+    //If the newer one starts a new case, everything recorded here belongs to the old game and is dropped
+    public SaveRequest mergedWith(SaveRequest newer) {
+        if (newer.currentCase != null) {
+            return newer;
+        }
+
+        Map<String, Boolean> suspects = new LinkedHashMap<>(questionedSuspects);
+        suspects.putAll(newer.questionedSuspects);
+
+        List<Clue> clues = new ArrayList<>(discoveredClues);
+        Set<String> seen = new LinkedHashSet<>();
+        for (Clue clue : discoveredClues) {
+            seen.add(clue.getDescription());
+        }
+        for (Clue clue : newer.discoveredClues) {
+            if (seen.add(clue.getDescription())) {
+                clues.add(clue);
+            }
+        }
+
+        String room = newer.currentRoom != null ? newer.currentRoom : currentRoom;
+        long seq = Math.max(journalSeq, newer.journalSeq);
+        byte[] snapshot = newer.progress != null ? newer.progress : progress;
+        return new SaveRequest(playerName, room, suspects, clues, currentCase, seq, snapshot, newer.createdNanos);
+    }
+
+    //True if there is nothing to write
+    public boolean isEmpty() {
+        return currentRoom == null && currentCase == null && progress == null
+                && questionedSuspects.isEmpty() && discoveredClues.isEmpty();
+    }
+
+    //getters
+    public String getPlayerName() { return playerName; }
+    public String getCurrentRoom() { return currentRoom; }
+    public Map<String, Boolean> getQuestionedSuspects() { return questionedSuspects; }
+    public List<Clue> getDiscoveredClues() { return discoveredClues; }
+    public Case getCurrentCase() { return currentCase; }
+    public long getJournalSeq() { return journalSeq; }
+    public byte[] getProgress() { return progress; }
+    public long getCreatedNanos() { return createdNanos; }
+}
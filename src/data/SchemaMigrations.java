@@ -0,0 +1,153 @@
+package data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//Brings an existing detective.db up to the current schema in place
+//The schema version is kept in SQLite's user_version header field, each step runs once
+final class SchemaMigrations {
+
+    //Version 1: progress tables keyed by integer suspect and clue ids
+    //Version 2: score index for the leaderboard
+    //Version 3: journal sequence number of the save
+    //Version 4: progress snapshot of the save
+    static final int CURRENT_VERSION = 4;
+
+    private SchemaMigrations() {
+    }
+
+    //Runs every step the database hasn't had yet
+    //Returns true if existing data was rewritten, so the caller can reclaim the freed pages
+    static boolean migrate(PooledConnection connection) throws SQLException {
+        //Databases created before the binary case format need the new column
+        if (!hasColumn(connection, "saved_cases", "case_data")) {
+            execute(connection, "ALTER TABLE saved_cases ADD COLUMN case_data BLOB");
+        }
+
+        int version = userVersion(connection);
+        boolean rewritten = false;
+        if (version < 1) {
+            rewritten = migrateToIntegerKeys(connection);
+        }
+        if (version < 2) {
+            //Covers the leaderboard's ordered reads and the per-score counts used to build it
+            execute(connection, "CREATE INDEX IF NOT EXISTS idx_players_score ON players(score DESC, name)");
+        }
+        if (version < 3 && !hasColumn(connection, "game_state", "journal_seq")) {
+            //The last SessionJournal record the save includes, recovery replays the records after it
+            execute(connection, "ALTER TABLE game_state ADD COLUMN journal_seq INTEGER NOT NULL DEFAULT 0");
+        }
+        if (version < 4 && !hasColumn(connection, "game_state", "progress")) {
+            //SessionProgress.snapshot() of the save, the progress rows are only read without one
+            execute(connection, "ALTER TABLE game_state ADD COLUMN progress BLOB");
+        }
+        if (version < CURRENT_VERSION) {
+            execute(connection, "PRAGMA user_version = " + CURRENT_VERSION);
+        }
+        return rewritten;
+    }
+
+    //Replaces the text-keyed suspect_progress and clue_progress tables with (player_id, entity_id) pairs
+    //Suspects and clues get stable ids in the suspects and clues tables, grouped by case.
+    //Old progress rows are mapped onto the case saved for the same player, rows with no saved case are dropped.
+    private static boolean migrateToIntegerKeys(PooledConnection connection) throws SQLException {
+        boolean legacy = hasColumn(connection, "suspect_progress", "suspect_name");
+        if (legacy) {
+            execute(connection, "ALTER TABLE suspect_progress RENAME TO suspect_progress_legacy");
+            execute(connection, "ALTER TABLE clue_progress RENAME TO clue_progress_legacy");
+        }
+
+        execute(connection, "CREATE TABLE IF NOT EXISTS clues (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "case_id INTEGER NOT NULL, " +
+                "description TEXT NOT NULL, " +
+                "FOREIGN KEY (case_id) REFERENCES cases(id))");
+
+        //The id lookups by name go through these, and they cover the id so the table itself isn't touched
+        execute(connection, "CREATE UNIQUE INDEX IF NOT EXISTS idx_cases_title ON cases(title)");
+        execute(connection, "CREATE UNIQUE INDEX IF NOT EXISTS idx_suspects_case_name ON suspects(case_id, name)");
+        execute(connection, "CREATE UNIQUE INDEX IF NOT EXISTS idx_clues_case_description ON clues(case_id, description)");
+
+        //WITHOUT ROWID makes the primary key the table itself, so reads by player are a single covering range scan
+        execute(connection, "CREATE TABLE IF NOT EXISTS suspect_progress (" +
+                "player_id INTEGER NOT NULL, " +
+                "suspect_id INTEGER NOT NULL, " +
+                "questioned BOOLEAN NOT NULL DEFAULT FALSE, " +
+                "PRIMARY KEY (player_id, suspect_id), " +
+                "FOREIGN KEY (player_id) REFERENCES players(id), " +
+                "FOREIGN KEY (suspect_id) REFERENCES suspects(id)) WITHOUT ROWID");
+
+        //A row means the clue has been discovered
+        execute(connection, "CREATE TABLE IF NOT EXISTS clue_progress (" +
+                "player_id INTEGER NOT NULL, " +
+                "clue_id INTEGER NOT NULL, " +
+                "PRIMARY KEY (player_id, clue_id), " +
+                "FOREIGN KEY (player_id) REFERENCES players(id), " +
+                "FOREIGN KEY (clue_id) REFERENCES clues(id)) WITHOUT ROWID");
+
+        if (!hasColumn(connection, "saved_cases", "case_id")) {
+            execute(connection, "ALTER TABLE saved_cases ADD COLUMN case_id INTEGER REFERENCES cases(id)");
+        }
+
+        if (!legacy) {
+            return false;
+        }
+
+        //Give every saved case a cases row and link it
+        execute(connection, "INSERT OR IGNORE INTO cases (title, difficulty) " +
+                "SELECT DISTINCT case_title, 'MEDIUM' FROM saved_cases");
+        execute(connection, "UPDATE saved_cases SET case_id = " +
+                "(SELECT id FROM cases WHERE cases.title = saved_cases.case_title)");
+
+        //Register the names and descriptions that show up in the old progress rows
+        execute(connection, "INSERT OR IGNORE INTO suspects (case_id, name) " +
+                "SELECT sc.case_id, l.suspect_name FROM suspect_progress_legacy l " +
+                "JOIN saved_cases sc ON sc.player_id = l.player_id WHERE l.suspect_name IS NOT NULL");
+        execute(connection, "INSERT OR IGNORE INTO clues (case_id, description) " +
+                "SELECT sc.case_id, l.clue_description FROM clue_progress_legacy l " +
+                "JOIN saved_cases sc ON sc.player_id = l.player_id " +
+                "WHERE l.clue_description IS NOT NULL AND l.discovered = TRUE");
+
+        //Copy progress across as id pairs
+        execute(connection, "INSERT OR REPLACE INTO suspect_progress (player_id, suspect_id, questioned) " +
+                "SELECT l.player_id, s.id, COALESCE(l.questioned, FALSE) FROM suspect_progress_legacy l " +
+                "JOIN saved_cases sc ON sc.player_id = l.player_id " +
+                "JOIN suspects s ON s.case_id = sc.case_id AND s.name = l.suspect_name");
+        execute(connection, "INSERT OR REPLACE INTO clue_progress (player_id, clue_id) " +
+                "SELECT l.player_id, c.id FROM clue_progress_legacy l " +
+                "JOIN saved_cases sc ON sc.player_id = l.player_id " +
+                "JOIN clues c ON c.case_id = sc.case_id AND c.description = l.clue_description " +
+                "WHERE l.discovered = TRUE");
+
+        execute(connection, "DROP TABLE suspect_progress_legacy");
+        execute(connection, "DROP TABLE clue_progress_legacy");
+        return true;
+    }
+
+    //Checks whether a table already has a column
+    static boolean hasColumn(PooledConnection connection, String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int userVersion(PooledConnection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void execute(PooledConnection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
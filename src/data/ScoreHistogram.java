@@ -0,0 +1,114 @@
+package data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+//Count of players per score, kept in a Fenwick tree over the distinct scores seen
+//Answers "how many players score above X" and "which score sits at rank R" in O(log distinct scores).
+//Any int is a valid score and memory only grows with how many different scores there are: a score not
+//seen before waits in a side map and the tree is rebuilt with it on the next query, so loading many new
+//scores at once costs one rebuild. Not thread safe, Leaderboard guards it.
+class ScoreHistogram {
+    //sorted distinct scores, bucket i of the tree holds keys[i]
+    private int[] keys = new int[0];
+    private long[] tree = new long[1];
+    //counts for scores that aren't keys yet
+    private final TreeMap<Integer, Long> pending = new TreeMap<>();
+    private long total;
+
+    //Adds delta players at this score
+    void add(int score, long delta) {
+        total += delta;
+        int i = Arrays.binarySearch(keys, score);
+        if (i < 0) {
+            pending.merge(score, delta, Long::sum);
+            return;
+        }
+        for (i++; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    //Players scoring at most this score
+    long countAtMost(int score) {
+        flush();
+        //number of keys at or below the score
+        int i = Arrays.binarySearch(keys, score);
+        i = i >= 0 ? i + 1 : -i - 1;
+        long sum = 0;
+        for (; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    //Players scoring strictly more than this score
+    long countAbove(int score) {
+        return total - countAtMost(score);
+    }
+
+    long total() {
+        return total;
+    }
+
+    //Score of the player at this 1-based position in descending order, or Integer.MIN_VALUE past the end
+    int scoreAtRank(long rank) {
+        if (rank < 1 || rank > total) return Integer.MIN_VALUE;
+        flush();
+        //position in ascending order, then the usual Fenwick descent for the smallest prefix reaching it
+        long target = total - rank + 1;
+        int pos = 0;
+        for (int step = Integer.highestOneBit(keys.length); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] < target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+        return keys[pos]; //tree index pos + 1 holds keys[pos]
+    }
+
+    //Rebuilds the tree with the pending scores merged in, dropping scores nobody has any more
+    private void flush() {
+        if (pending.isEmpty()) return;
+
+        //Turn the tree back into plain counts, the reverse of the build below
+        long[] counts = Arrays.copyOf(tree, tree.length);
+        for (int i = counts.length - 1; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent < counts.length) counts[parent] -= counts[i];
+        }
+
+        int[] newKeys = new int[keys.length + pending.size()];
+        long[] newTree = new long[newKeys.length + 1];
+        int n = 0;
+        int k = 0;
+        for (Map.Entry<Integer, Long> e : pending.entrySet()) {
+            int score = e.getKey();
+            while (k < keys.length && keys[k] < score) {
+                n = put(newKeys, newTree, n, keys[k], counts[k + 1]);
+                k++;
+            }
+            n = put(newKeys, newTree, n, score, e.getValue());
+        }
+        for (; k < keys.length; k++) {
+            n = put(newKeys, newTree, n, keys[k], counts[k + 1]);
+        }
+        pending.clear();
+
+        keys = Arrays.copyOf(newKeys, n);
+        tree = Arrays.copyOf(newTree, n + 1);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+
+    private static int put(int[] keys, long[] counts, int n, int score, long count) {
+        if (count == 0) return n;
+        keys[n] = score;
+        counts[n + 1] = count;
+        return n + 1;
+    }
+}
@@ -0,0 +1,354 @@
+package data;
+
+import util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only log of one player's actions since their last save
+ *
+ * Every move, search, question and accusation is appended as a few bytes, so a crash loses nothing
+ * that the player did. Records are numbered: the file header holds the number of the record before
+ * the first one in the file, and a save stores the number of the last record it includes. Recovery
+ * loads the save and replays the records after that number. Once a save is committed the records it
+ * covers are cut off the file (compact), so the journal only ever holds what isn't saved yet.
+ *
+ * Records are written with one write call and no fsync, so they survive the game crashing but not the
+ * machine losing power. A record cut short by a crash is dropped when the journal is opened again.
+ * Records name rooms, suspects and questions by their ids in the case definition.
+ *
+ * Layout: 'S' 'J', version, base sequence number (long), then records. Each record is a type byte and
+ * unsigned varints, a case record carries the case id as length-prefixed UTF-8.
+ */
+public class SessionJournal implements Closeable {
+
+    //What a replay sees, in the order the player did it
+    public interface Visitor {
+        void onCase(String caseId);
+        void onRoom(int room);
+        void onSearch(int room);
+        void onQuestion(int suspect, int question);
+        void onAccuse(int suspect);
+    }
+
+    public static final String EXTENSION = ".journal";
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'J';
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 3 + 8;
+
+    private static final byte CASE = 1;
+    private static final byte ROOM = 2;
+    private static final byte SEARCH = 3;
+    private static final byte QUESTION = 4;
+    private static final byte ACCUSE = 5;
+
+    private final Path path;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(64);
+    private long baseSeq;
+    private int count;
+    private byte firstType;
+
+    private SessionJournal(Path path) {
+        this.path = path;
+    }
+
+    //Opens a player's journal in a directory, creating it if there isn't one yet
+    public static SessionJournal open(Path directory, String playerName) throws IOException {
+        Files.createDirectories(directory);
+        SessionJournal journal = new SessionJournal(directory.resolve(fileName(playerName)));
+        journal.load();
+        return journal;
+    }
+
+    //Player names become file names, anything that isn't safe in one is replaced
+    static String fileName(String playerName) {
+        return playerName.replaceAll("[^A-Za-z0-9_.-]", "_") + EXTENSION;
+    }
+
+    //Reads the header and counts the records, dropping a record cut short at the end
+    private void load() throws IOException {
+        if (!Files.exists(path)) {
+            writeFile(0, null, 0, 0);
+        }
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || in.get() != MAGIC_0 || in.get() != MAGIC_1) {
+            throw new IOException(path + " is not a session journal");
+        }
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported journal version " + version);
+        }
+        baseSeq = in.getLong();
+
+        count = 0;
+        firstType = 0;
+        int end = HEADER_SIZE;
+        while (in.hasRemaining()) {
+            byte type = in.get(end);
+            int next = skipRecord(in, end);
+            if (next < 0) {
+                Log.warn("JOURNAL", "Dropping a damaged record at the end of {}", path.getFileName());
+                break;
+            }
+            if (count == 0) firstType = type;
+            count++;
+            end = next;
+            in.position(end);
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        if (end < data.length) {
+            channel.truncate(end);
+        }
+        channel.position(end);
+    }
+
+    //The number of the last record written, or of the last one saved if none have been written since
+    public synchronized long getSeq() {
+        return baseSeq + count;
+    }
+
+    //Records in the journal, i.e. actions not covered by a compacted save
+    public synchronized int getRecordCount() {
+        return count;
+    }
+
+    //True if the journal holds anything the player did, a case that was only opened doesn't count
+    public synchronized boolean hasActions() {
+        return count > 1 || (count == 1 && firstType != CASE);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    //A new case, everything before it belongs to the old game
+    public synchronized void appendCase(String caseId) throws IOException {
+        byte[] id = caseId.getBytes(StandardCharsets.UTF_8);
+        ensure(1 + 5 + id.length);
+        buffer.put(CASE);
+        putVarint(id.length);
+        buffer.put(id);
+        write(CASE);
+    }
+
+    //The player is now in this room
+    public synchronized void appendRoom(int room) throws IOException {
+        append(ROOM, room);
+    }
+
+    public synchronized void appendSearch(int room) throws IOException {
+        append(SEARCH, room);
+    }
+
+    //A question of the case's list, or -1 for a question that isn't on it
+    public synchronized void appendQuestion(int suspect, int question) throws IOException {
+        buffer.clear();
+        buffer.put(QUESTION);
+        putVarint(suspect);
+        putVarint(question + 1);
+        write(QUESTION);
+    }
+
+    public synchronized void appendAccuse(int suspect) throws IOException {
+        append(ACCUSE, suspect);
+    }
+
+    private void append(byte type, int value) throws IOException {
+        buffer.clear();
+        buffer.put(type);
+        putVarint(value);
+        write(type);
+    }
+
+    private void ensure(int size) {
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size);
+        }
+        buffer.clear();
+    }
+
+    private void write(byte type) throws IOException {
+        if (channel == null) {
+            throw new IOException("Journal is closed");
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (count == 0) firstType = type;
+        count++;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    //Replays the records after a save's sequence number, returns how many were replayed
+    //A journal that starts after the save can only be replayed if it starts a new case, otherwise
+    //records in between are missing and IOException is thrown without replaying anything.
+    public synchronized int replay(long afterSeq, Visitor visitor) throws IOException {
+        if (afterSeq < baseSeq && count > 0 && firstType != CASE) {
+            throw new IOException("Journal starts at record " + (baseSeq + 1)
+                    + " but the save only goes up to " + afterSeq);
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        in.position(HEADER_SIZE);
+        int replayed = 0;
+        for (long seq = baseSeq + 1; seq <= baseSeq + count; seq++) {
+            byte type = in.get();
+            switch (type) {
+                case CASE: {
+                    byte[] id = new byte[getVarint(in)];
+                    in.get(id);
+                    if (seq > afterSeq) visitor.onCase(new String(id, StandardCharsets.UTF_8));
+                    break;
+                }
+                case ROOM: {
+                    int room = getVarint(in);
+                    if (seq > afterSeq) visitor.onRoom(room);
+                    break;
+                }
+                case SEARCH: {
+                    int room = getVarint(in);
+                    if (seq > afterSeq) visitor.onSearch(room);
+                    break;
+                }
+                case QUESTION: {
+                    int suspect = getVarint(in);
+                    int question = getVarint(in) - 1;
+                    if (seq > afterSeq) visitor.onQuestion(suspect, question);
+                    break;
+                }
+                case ACCUSE: {
+                    int suspect = getVarint(in);
+                    if (seq > afterSeq) visitor.onAccuse(suspect);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown journal record " + type);
+            }
+            if (seq > afterSeq) replayed++;
+        }
+        return replayed;
+    }
+
+    //Drops the records up to a committed save, keeping any written after it
+    //A journal closed in the meantime is left alone, its records are skipped when it's replayed
+    public synchronized void compact(long savedSeq) throws IOException {
+        if (channel == null || savedSeq <= baseSeq) return;
+        long seq = getSeq();
+        if (savedSeq >= seq) {
+            reset(savedSeq);
+            return;
+        }
+
+        //Some records came after the save, copy them to the new file
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int offset = HEADER_SIZE;
+        for (long s = baseSeq; s < savedSeq; s++) {
+            offset = skipRecord(in, offset);
+        }
+        int kept = (int) (seq - savedSeq);
+        byte type = data[offset];
+        channel.close();
+        writeFile(savedSeq, data, offset, data.length - offset);
+        reopen(savedSeq, kept, type);
+    }
+
+    //Empties the journal, numbering the next record after seq
+    //Used after a save is loaded, and when a save is newer than anything in the journal
+    public synchronized void reset(long seq) throws IOException {
+        if (channel != null) channel.close();
+        writeFile(seq, null, 0, 0);
+        reopen(seq, 0, (byte) 0);
+    }
+
+    private void reopen(long base, int records, byte first) throws IOException {
+        baseSeq = base;
+        count = records;
+        firstType = first;
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    //Writes a header and some records to a temporary file and moves it over the journal
+    //Either the old or the new file is there after a crash, never half of one
+    private void writeFile(long base, byte[] records, int offset, int length) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + length);
+        out.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION).putLong(base);
+        if (records != null) {
+            out.put(records, offset, length);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, out.array());
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    //The offset after the record at an offset, or -1 if it runs past the end or isn't a record
+    private static int skipRecord(ByteBuffer in, int offset) {
+        try {
+            in.position(offset);
+            byte type = in.get();
+            switch (type) {
+                case CASE:
+                    int length = getVarint(in);
+                    if (length < 0 || length > in.remaining()) return -1;
+                    in.position(in.position() + length);
+                    break;
+                case QUESTION:
+                    getVarint(in);
+                    getVarint(in);
+                    break;
+                case ROOM:
+                case SEARCH:
+                case ACCUSE:
+                    getVarint(in);
+                    break;
+                default:
+                    return -1;
+            }
+            return in.position();
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static int getVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Bad number in journal");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package data;
+
+import util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Bounded per-connection cache of prepared statements, keyed by SQL text
+//Keeps the least recently used statements and closes the ones it evicts.
+//Only ever used by whoever currently holds the connection, so it needs no locking of its own.
+class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    //hits and misses are shared with the pool so it can report totals over all connections
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    //Gets the cached statement for this SQL, preparing it the first time
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.incrementAndGet();
+            stmt.clearParameters();
+            return stmt;
+        }
+
+        misses.incrementAndGet();
+        stmt = connection.prepareStatement(sql);
+        statements.put(sql, stmt);
+        evictOverflow();
+        return stmt;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            closeQuietly(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    //Closes every cached statement, called before the connection itself is closed
+    void close() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            Log.warn("DB", "Error closing cached statement: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class TestScoreHistogram {
+
+    /**
+     * Checks the leaderboard's score histogram against a plain sorted list
+     * Covers extreme scores (Integer.MIN_VALUE, Integer.MAX_VALUE, a billion) and random adds and removals
+     */
+    public static void main(String[] args){
+        try {
+            testExtremeScores();
+            testAgainstSortedList(new Random(42));
+            System.out.println("YES!! Score histogram matches a sorted list");
+        } catch (AssertionError e) {
+            System.err.println("NO!! Score histogram is wrong: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    //A handful of players at the far ends of the int range, which must not need a huge tree
+    private static void testExtremeScores(){
+        int[] scores = {Integer.MAX_VALUE, 1_000_000_000, 0, -1, Integer.MIN_VALUE, 1_000_000_000, 7};
+        ScoreHistogram histogram = new ScoreHistogram();
+        List<Integer> players = new ArrayList<>();
+        for (int score : scores) {
+            histogram.add(score, 1);
+            players.add(score);
+        }
+        check(histogram, players, scores);
+        System.out.println("Extreme scores ranked correctly");
+
+        histogram.add(Integer.MAX_VALUE, -1);
+        players.remove(Integer.valueOf(Integer.MAX_VALUE));
+        histogram.add(Integer.MIN_VALUE, -1);
+        players.remove(Integer.valueOf(Integer.MIN_VALUE));
+        check(histogram, players, scores);
+        System.out.println("Extreme scores removed correctly");
+    }
+
+    //Random players joining, changing score and leaving, scores spread over the whole int range
+    private static void testAgainstSortedList(Random random){
+        ScoreHistogram histogram = new ScoreHistogram();
+        List<Integer> players = new ArrayList<>();
+        int[] probes = new int[64];
+        for (int round = 0; round < 2000; round++) {
+            int score = random.nextInt(3) == 0 ? random.nextInt() : random.nextInt(200) - 100;
+            if (!players.isEmpty() && random.nextInt(3) == 0) {
+                int old = players.remove(random.nextInt(players.size()));
+                histogram.add(old, -1);
+            }
+            players.add(score);
+            histogram.add(score, 1);
+            probes[round % probes.length] = score;
+            if (round % 50 == 0) {
+                check(histogram, players, probes);
+            }
+        }
+        check(histogram, players, probes);
+        System.out.println("Random scores ranked correctly");
+    }
+
+    private static void check(ScoreHistogram histogram, List<Integer> players, int[] probes){
+        List<Integer> descending = new ArrayList<>(players);
+        descending.sort(Collections.reverseOrder());
+        expect(histogram.total() == descending.size(), "total " + histogram.total() + " but " + descending.size() + " players");
+        for (int rank = 1; rank <= descending.size(); rank++) {
+            int score = histogram.scoreAtRank(rank);
+            expect(score == descending.get(rank - 1), "rank " + rank + " has score " + score
+                    + " but should have " + descending.get(rank - 1));
+        }
+        expect(histogram.scoreAtRank(descending.size() + 1) == Integer.MIN_VALUE, "a rank past the end has a score");
+
+        for (int probe : probes) {
+            for (long around = (long) probe - 1; around <= (long) probe + 1; around++) {
+                if (around < Integer.MIN_VALUE || around > Integer.MAX_VALUE) continue;
+                int score = (int) around;
+                long above = 0;
+                for (int s : descending) {
+                    if (s > score) above++;
+                }
+                expect(histogram.countAbove(score) == above, "countAbove(" + score + ") is "
+                        + histogram.countAbove(score) + " but should be " + above);
+            }
+        }
+    }
+
+    private static void expect(boolean condition, String message){
+        if (!condition) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,116 @@
+package game;
+
+import Model.CaseDefinition;
+import Model.Direction;
+import Model.ShipGraph;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The text the engine shows that depends only on the case, rendered once and shared by every game
+ *
+ * The briefing is built when a case is first played, each room's texts the first time someone is in
+ * that room, so a huge ship only pays for the rooms that are visited. Engines put these fragments
+ * together with the few things that depend on the player, such as the clues they just found.
+ */
+final class CaseText {
+    private static final String BULLET = "• ";
+    //one per parsed case, dropped with the definition when the pack is re-read
+    //so a CaseText must never point back at its definition, callers pass it in instead
+    private static final Map<CaseDefinition, CaseText> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    //What a room looks like to someone in it
+    static final class RoomText {
+        final String entered;
+        final String returned;
+        final String location;
+        final String searching;
+
+        private RoomText(String entered, String returned, String location, String searching) {
+            this.entered = entered;
+            this.returned = returned;
+            this.location = location;
+            this.searching = searching;
+        }
+    }
+
+    private final String briefing;
+    private final String started;
+    private final AtomicReferenceArray<RoomText> rooms;
+
+    private CaseText(CaseDefinition definition) {
+        this.rooms = new AtomicReferenceArray<>(definition.getRooms().size());
+        this.briefing = renderBriefing(definition);
+        ShipGraph graph = definition.getGraph();
+        this.started = briefing + "\n\n=== CURRENT LOCATION ===\n" + room(definition, graph.getStartRoom()).location;
+    }
+
+    static CaseText of(CaseDefinition definition) {
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(definition, CaseText::new);
+        }
+    }
+
+    //The case title, crime scene and suspects
+    String briefing() {
+        return briefing;
+    }
+
+    //The briefing followed by the start room
+    String started() {
+        return started;
+    }
+
+    //The definition must be the one this text was made for
+    RoomText room(CaseDefinition definition, String name) {
+        return room(definition, definition.getGraph().idOf(name));
+    }
+
+    //Two games rendering the same room at once build equal text, either one is kept
+    RoomText room(CaseDefinition definition, int id) {
+        RoomText text = rooms.get(id);
+        if (text == null) {
+            text = renderRoom(definition, id);
+            rooms.compareAndSet(id, null, text);
+        }
+        return text;
+    }
+
+    private static String renderBriefing(CaseDefinition definition) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== ").append(definition.getTitle()).append(" ===\n\n")
+                .append(definition.getCrimeScene().replace(". ", ".\n"))
+                .append("\n\n=== SUSPECTS ===\n");
+        for (CaseDefinition.SuspectSpec s : definition.getSuspects()) {
+            sb.append(BULLET).append(s.getName()).append(": ")
+                    .append(s.getDescription()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static RoomText renderRoom(CaseDefinition definition, int id) {
+        ShipGraph graph = definition.getGraph();
+        String name = graph.nameOf(id);
+        String description = definition.getRooms().get(id).getDescription();
+
+        StringJoiner exits = new StringJoiner("/");
+        for (Direction d : Direction.values()) {
+            if (graph.exit(id, d) != ShipGraph.NO_ROOM) {
+                exits.add(d.getDisplayName());
+            }
+        }
+        String actions = "=== What would you like to do? ===\n" +
+                BULLET + "Search the room - Look for clues\n" +
+                BULLET + "Move to another area (" + exits + ")";
+
+        return new RoomText(
+                "You enter the " + name + ".\n\n" + description,
+                "You return to the " + name + "\n\n" + description + "\n\n" + actions,
+                "You are in the " + name + "\n" + description + "\n\n" + actions,
+                "Searching " + name + "...\n\n");
+    }
+}
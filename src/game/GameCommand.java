@@ -0,0 +1,91 @@
+package game;
+
+import Model.Direction;
+
+/**
+ * Something a player asks their game to do, handed to GameEngine.execute
+ *
+ * Commands carry names rather than model objects (a case id, a suspect's name, the text of a question)
+ * so they can come from a dialog, a network line or a script the same way.
+ */
+public final class GameCommand {
+
+    public enum Type {
+        OPEN_CASE,      //load a case and show its briefing
+        START_CASE,     //load a case and enter the ship at its start room
+        MOVE,
+        RETURN_TO_START,
+        SEARCH,
+        LIST_CLUES,
+        QUESTION,
+        ACCUSE,
+        SAVE,
+        LOAD,           //go back to the last save
+        RECOVER         //the last save plus everything journalled since, after a crash
+    }
+
+    private static final GameCommand RETURN_TO_START = new GameCommand(Type.RETURN_TO_START, null, null, null);
+    private static final GameCommand SEARCH = new GameCommand(Type.SEARCH, null, null, null);
+    private static final GameCommand LIST_CLUES = new GameCommand(Type.LIST_CLUES, null, null, null);
+    private static final GameCommand SAVE = new GameCommand(Type.SAVE, null, null, null);
+    private static final GameCommand LOAD = new GameCommand(Type.LOAD, null, null, null);
+    private static final GameCommand RECOVER = new GameCommand(Type.RECOVER, null, null, null);
+
+    private final Type type;
+    private final String target;
+    private final String question;
+    private final Direction direction;
+
+    private GameCommand(Type type, String target, String question, Direction direction){
+        this.type = type;
+        this.target = target;
+        this.question = question;
+        this.direction = direction;
+    }
+
+    //Loads a case by catalog id, or the default case if caseId is null
+    public static GameCommand openCase(String caseId){
+        return new GameCommand(Type.OPEN_CASE, caseId, null, null);
+    }
+
+    //Starts a case by catalog id, or the default case if caseId is null
+    public static GameCommand startCase(String caseId){
+        return new GameCommand(Type.START_CASE, caseId, null, null);
+    }
+
+    public static GameCommand move(Direction direction){
+        return new GameCommand(Type.MOVE, null, null, direction);
+    }
+
+    public static GameCommand returnToStart(){ return RETURN_TO_START; }
+    public static GameCommand search(){ return SEARCH; }
+    public static GameCommand listClues(){ return LIST_CLUES; }
+    public static GameCommand save(){ return SAVE; }
+    public static GameCommand load(){ return LOAD; }
+    public static GameCommand recover(){ return RECOVER; }
+
+    public static GameCommand question(String suspectName, String question){
+        return new GameCommand(Type.QUESTION, suspectName, question, null);
+    }
+
+    public static GameCommand accuse(String suspectName){
+        return new GameCommand(Type.ACCUSE, suspectName, null, null);
+    }
+
+    public Type getType(){ return type; }
+
+    //The case id for OPEN_CASE/START_CASE, the suspect's name for QUESTION/ACCUSE
+    public String getTarget(){ return target; }
+
+    public String getQuestion(){ return question; }
+    public Direction getDirection(){ return direction; }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder(type.name());
+        if (direction != null) sb.append(' ').append(direction);
+        if (target != null) sb.append(' ').append(target);
+        if (question != null) sb.append(" \"").append(question).append('"');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,814 @@
+package game;
+
+import Model.*;
+import data.CaseCatalog;
+import data.SaveQueue;
+import data.SaveRequest;
+import data.SessionJournal;
+import util.Log;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One player's game, with no user interface
+ *
+ * Commands go in through execute and everything that happens comes back as GameEvents. The engine never
+ * waits on a person: choosing a suspect or a question is the client's job, and the query methods give it
+ * what it needs to offer the choices. Content, the database and the save queue come from GameServices
+ * and are shared, so a JVM can run as many engines as it has players.
+ *
+ * When the services have a journal directory every action is also appended to the player's
+ * SessionJournal. RECOVER rebuilds a game lost in a crash from the last save plus the journal, and a
+ * save is taken by itself every SNAPSHOT_INTERVAL actions so there is never much to replay.
+ *
+ * An engine is driven by one thread at a time. Save results are reported from a save worker thread.
+ */
+public class GameEngine {
+
+    //Actions journalled since the last save before the engine saves by itself
+    public static final int SNAPSHOT_INTERVAL = 256;
+
+    private final String playerName;
+    private final GameServices services;
+    private final GameListener listener;
+    //null if the game isn't journalled or the journal couldn't be written
+    private volatile SessionJournal journal;
+    //the last journal record handed to a save
+    private long savedSeq;
+    private final AtomicInteger savesInFlight = new AtomicInteger();
+    //the journal is never compacted past this, it is where the earliest failed save started
+    //Later delta saves don't carry that save's changes, so its records are kept until a full save commits
+    private final AtomicLong keepJournalFrom = new AtomicLong(Long.MAX_VALUE);
+    private final SessionJournal.Visitor replayer = new Replayer();
+
+    private CaseDefinition caseDefinition;
+    //the case's rendered text, shared with every other game of it
+    private CaseText text;
+    private Case currentCase;
+    private List<String> questions;
+    //each question to its position in questions
+    private Map<String, Integer> questionIds;
+    private Map<String, Room> shipRooms;
+    private SessionProgress progress;
+    //the progress snapshot last handed to a save, so an unchanged one isn't written again
+    private byte[] savedProgress;
+    private String currentRoom;
+
+    //Change tracking for incremental saves
+    private boolean roomChanged;
+    private boolean caseChanged;
+    //set when the database is missing changes (a save failed, or a game was recovered)
+    //so the next save writes everything, a failure on the save worker can set it at any time
+    private final AtomicBoolean saveEverything = new AtomicBoolean();
+
+    public GameEngine(String playerName, GameServices services, GameListener listener){
+        this.playerName = playerName;
+        this.services = services;
+        this.listener = listener;
+        if (services.getJournalDirectory() != null && services.hasDatabase()) {
+            try {
+                journal = SessionJournal.open(services.getJournalDirectory(), playerName);
+                savedSeq = journal.getSeq();
+            } catch (IOException e) {
+                Log.warn("JOURNAL", "Can't open the journal for {}, actions won't be recorded: {}",
+                        playerName, e.getMessage());
+            }
+        }
+    }
+
+    //Runs a command, its outcome is sent to the listener
+    public void execute(GameCommand command){
+        Log.debug("GAME", "{} {}", playerName, command);
+        switch (command.getType()) {
+            case OPEN_CASE:
+                if (openCase(command.getTarget())) {
+                    emit(GameEvent.Type.CASE_OPENED, text.briefing());
+                }
+                break;
+            case START_CASE:
+                startCase(command.getTarget());
+                break;
+            case MOVE:
+                move(command.getDirection());
+                break;
+            case RETURN_TO_START:
+                returnToStartRoom();
+                break;
+            case SEARCH:
+                searchRoom();
+                break;
+            case LIST_CLUES:
+                listClues();
+                break;
+            case QUESTION:
+                question(command.getTarget(), command.getQuestion());
+                break;
+            case ACCUSE:
+                accuse(command.getTarget());
+                break;
+            case SAVE:
+                saveGame();
+                break;
+            case LOAD:
+                loadGame();
+                break;
+            case RECOVER:
+                recover();
+                break;
+        }
+    }
+
+    //True if the journal holds actions that were never saved, e.g. because the game crashed
+    public boolean hasUnsavedActions(){
+        SessionJournal j = journal;
+        return j != null && j.hasActions();
+    }
+
+    //Forgets the actions since the last save, for a player who quits without saving
+    public void discardUnsavedActions(){
+        SessionJournal j = journal;
+        if (j != null) {
+            restartJournal(j.getSeq());
+        }
+    }
+
+    //Closes the player's journal, the engine can't be used afterwards
+    public void close(){
+        SessionJournal j = journal;
+        journal = null;
+        if (j != null) {
+            try {
+                j.close();
+            } catch (IOException e) {
+                Log.warn("JOURNAL", "Error closing the journal for {}: {}", playerName, e.getMessage());
+            }
+        }
+    }
+
+    public String getPlayerName(){ return playerName; }
+
+    //The case being played, null until one is opened
+    public CaseDefinition getCaseDefinition(){ return caseDefinition; }
+    public Case getCurrentCase(){ return currentCase; }
+    public SessionProgress getProgress(){ return progress; }
+
+    //The player's room, null until they enter the ship
+    public String getCurrentRoom(){ return currentRoom; }
+
+    public boolean isInShip(){
+        return currentRoom != null;
+    }
+
+    public boolean isAtStart(){
+        return currentRoom != null && currentRoom.equals(caseDefinition.getStartRoom());
+    }
+
+    //True if the current room has an exit that way
+    public boolean canMove(Direction direction){
+        return currentRoom != null && caseDefinition.getGraph().exit(currentRoom, direction) != null;
+    }
+
+    //Names of the case's suspects, empty if no case is open
+    public List<String> getSuspectNames(){
+        if (caseDefinition == null) return Collections.emptyList();
+        List<String> names = new ArrayList<>(caseDefinition.getSuspects().size());
+        for (CaseDefinition.SuspectSpec s : caseDefinition.getSuspects()) {
+            names.add(s.getName());
+        }
+        return names;
+    }
+
+    //The questions not yet asked of a suspect
+    public List<String> getUnaskedQuestions(String suspectName){
+        int suspect = caseDefinition == null ? -1 : caseDefinition.getSuspectId(suspectName);
+        if (suspect < 0) return Collections.emptyList();
+        List<String> unasked = new ArrayList<>();
+        for (int q = 0; q < questions.size(); q++) {
+            if (!progress.isAsked(suspect, q)) {
+                unasked.add(questions.get(q));
+            }
+        }
+        return unasked;
+    }
+
+    private void emit(GameEvent.Type type, String text){
+        listener.onEvent(new GameEvent(type, text, currentRoom));
+    }
+
+    //Loads a case with fresh progress, the player enters the ship with START_CASE
+    private boolean openCase(String caseId){
+        CaseCatalog catalog = services.catalog();
+        CaseCatalog.Entry entry = caseId == null ? catalog.getDefault() : catalog.findById(caseId);
+        if (entry == null) {
+            emit(GameEvent.Type.REJECTED, caseId == null
+                    ? "No cases found in " + services.getCaseDirectory()
+                    : "There is no case called " + caseId);
+            return false;
+        }
+
+        try {
+            useCase(services.getContent().caseDefinition(entry));
+        } catch (IOException e) {
+            Log.error("GAME", "Error loading case file", e);
+            emit(GameEvent.Type.ERROR, "Error loading case file: " + e.getMessage());
+            return false;
+        }
+        currentCase = caseDefinition.newCase();
+        currentRoom = null;
+
+        //A new case replaces whatever was saved before
+        caseChanged = true;
+
+        //Nothing before a new case matters to a replay, so the journal starts again from here
+        String id = entry.getId();
+        record(j -> {
+            j.reset(j.getSeq());
+            j.appendCase(id);
+        });
+        return true;
+    }
+
+    //Switches to a case's ship and questions with fresh progress
+    //The definition is shared, so only the rooms and the progress bitsets are new
+    private void useCase(CaseDefinition definition){
+        caseDefinition = definition;
+        text = CaseText.of(definition);
+        shipRooms = definition.buildRooms();
+        if (definition.getQuestions().isEmpty()) {
+            questions = services.defaultQuestions();
+            questionIds = services.defaultQuestionIds(questions);
+        } else {
+            questions = definition.getQuestions();
+            questionIds = definition.getQuestionIds();
+        }
+        progress = new SessionProgress(definition.getSuspects().size(), questions.size(),
+                new ClueIndex(definition, shipRooms));
+        savedProgress = null;
+    }
+
+    //Starts a case with the player at its start room
+    private void startCase(String caseId){
+        if (!openCase(caseId)) return;
+
+        setCurrentRoom(caseDefinition.getStartRoom());
+        emit(GameEvent.Type.CASE_STARTED, text.started());
+    }
+
+    //Moves the player through an exit of the current room
+    private void move(Direction direction){
+        if (!isInShip()) {
+            emit(GameEvent.Type.REJECTED, "Start a case first.");
+            return;
+        }
+        String next = direction == null ? null : caseDefinition.getGraph().exit(currentRoom, direction);
+        if (next == null) {
+            emit(GameEvent.Type.REJECTED, "You can't go that way from here!");
+            return;
+        }
+        setCurrentRoom(next);
+        emit(GameEvent.Type.ROOM_ENTERED, text.room(caseDefinition, next).entered);
+    }
+
+    //Returns player to the room the case starts in
+    private void returnToStartRoom(){
+        if (!isInShip()) {
+            emit(GameEvent.Type.REJECTED, "Start a case first.");
+            return;
+        }
+        setCurrentRoom(caseDefinition.getStartRoom());
+        emit(GameEvent.Type.ROOM_ENTERED, text.room(caseDefinition, currentRoom).returned);
+    }
+
+    //Moves the player and remembers that the room needs saving
+    private void setCurrentRoom(String roomName){
+        if (!roomName.equals(currentRoom)) {
+            roomChanged = true;
+            int room = caseDefinition.getGraph().idOf(roomName);
+            currentRoom = roomName;
+            record(j -> j.appendRoom(room));
+        }
+    }
+
+    //Searches current room for clues
+    private void searchRoom(){
+        if (!isInShip()) {
+            emit(GameEvent.Type.REJECTED, "Start a case first.");
+            return;
+        }
+        int room = caseDefinition.getGraph().idOf(currentRoom);
+        StringBuilder sb = new StringBuilder();
+        sb.append(text.room(caseDefinition, room).searching);
+
+        if (!discoverClues(room, sb)){
+            sb.append("You did not find anything new.");
+        }
+        record(j -> j.appendSearch(room));
+
+        emit(GameEvent.Type.SEARCHED, sb.toString());
+    }
+
+    //Finds the clues of a room not found yet, listing them in sb if it isn't null
+    //Returns true if anything new was found
+    private boolean discoverClues(int room, StringBuilder sb){
+        //Check all clues in room, the index only reports each clue once
+        boolean foundNew = false;
+        for (int id = caseDefinition.getFirstClueId(room); id < caseDefinition.getClueEnd(room); id++) {
+            if (progress.getClues().discover(id)) {
+                Clue clue = progress.getClues().getClue(id);
+                if (sb != null) {
+                    sb.append("You found: ").append(clue.getDescription()).append("\n");
+                }
+                foundNew = true;
+
+                currentCase.getClues().add(clue);
+            }
+        }
+        return foundNew;
+    }
+
+    //Lists all discovered clues in the order they were found
+    private void listClues(){
+        if (currentCase == null){
+            emit(GameEvent.Type.REJECTED, "No case loaded");
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== DISCOVERED CLUES ===\n");
+        for (Clue clue : progress.getClues().getDiscovered()){
+            sb.append("- ").append(clue.getDescription()).append("\n");
+        }
+
+        if (progress.getClues().getDiscoveredCount() == 0){
+            sb.append("You haven't found any clues yet! \n");
+            sb.append("Search rooms to discover clues");
+        }
+
+        emit(GameEvent.Type.CLUE_LIST, sb.toString());
+    }
+
+    //Asks a suspect a question, using the case's response rules for the answer
+    //Questions from the case's list are remembered as asked, any other text is simply answered
+    private void question(String suspectName, String question){
+        if (caseDefinition == null || caseDefinition.getSuspects().isEmpty()) {
+            emit(GameEvent.Type.REJECTED, "No suspects available. Load a case first.");
+            return;
+        }
+        if (suspectName == null || suspectName.trim().isEmpty()) {
+            emit(GameEvent.Type.REJECTED, "Who do you want to question?");
+            return;
+        }
+        int suspect = caseDefinition.getSuspectId(suspectName);
+        if (suspect < 0) {
+            emit(GameEvent.Type.REJECTED, "There is no suspect called " + suspectName);
+            return;
+        }
+        if (question == null || question.trim().isEmpty()) {
+            emit(GameEvent.Type.REJECTED, "What do you want to ask " + suspectName + "?");
+            return;
+        }
+
+        Integer id = questionIds.get(question);
+        int q = id == null ? -1 : id;
+        if (q >= 0) {
+            progress.markAsked(suspect, q);
+        }
+        progress.markQuestioned(suspect);
+        record(j -> j.appendQuestion(suspect, q));
+
+        String response = caseDefinition.getResponses().respond(suspectName,
+                caseDefinition.getSuspects().get(suspect).isGuilty(), question);
+        emit(GameEvent.Type.ANSWERED, "Question to " + suspectName + ":\n" +
+                "\"" + question + "\"\n\n" +
+                "Response:\n" +
+                "\"" + response + "\"");
+    }
+
+    //Accuses a suspect of the crime
+    private void accuse(String suspectName){
+        if (caseDefinition == null || caseDefinition.getSuspects().isEmpty()) {
+            emit(GameEvent.Type.REJECTED, "No suspects available. Load a case first.");
+            return;
+        }
+        if (suspectName == null || suspectName.trim().isEmpty()) {
+            emit(GameEvent.Type.REJECTED, "Who do you want to accuse?");
+            return;
+        }
+        int suspect = caseDefinition.getSuspectId(suspectName);
+        if (suspect < 0) {
+            emit(GameEvent.Type.REJECTED, "There is no suspect called " + suspectName);
+            return;
+        }
+        record(j -> j.appendAccuse(suspect));
+        if (caseDefinition.getSuspects().get(suspect).isGuilty()) {
+            emit(GameEvent.Type.CASE_SOLVED, "Correct! " + suspectName + " was the killer!!");
+        } else {
+            emit(GameEvent.Type.WRONG_ACCUSATION, "Wrong :(( the legendary killer still roams free...");
+        }
+    }
+
+    //Queues the changes made since the last save to be written in the background
+    //Returns straight away, the outcome is reported by the save listener
+    private void saveGame(){
+        if (!isInShip()) {
+            emit(GameEvent.Type.REJECTED, "Start a case before saving.");
+            return;
+        }
+        if (!services.hasDatabase()) {
+            emit(GameEvent.Type.ERROR, "Saving isn't available without a database.");
+            return;
+        }
+        queueSave(true);
+    }
+
+    //Hands the changes to the save queue, announce is false for the saves the engine takes by itself
+    private void queueSave(boolean announce){
+        Log.debug("SAVE", "Attempting to save game for {} from room: {}", playerName, currentRoom);
+
+        //A new case (or a failed save) means the whole state has to be written again
+        //Taken and cleared in one step, so a save failing meanwhile isn't lost
+        boolean full = saveEverything.getAndSet(false) | caseChanged;
+
+        //Collect clues discovered since the last save
+        ClueIndex clues = progress.getClues();
+        List<Clue> discoveredClues = full ? clues.getDiscovered() : clues.getChangesSinceSave();
+        Log.debug("SAVE", "Found {} newly discovered clues", discoveredClues.size());
+
+        //Snapshot the changes here so the game can carry on while the save waits in the queue
+        SessionJournal j = journal;
+        long seq = j != null ? j.getSeq() : -1;
+        long fromSeq = savedSeq;
+        byte[] snapshot = progress.snapshot();
+        boolean progressChanged = full || !Arrays.equals(snapshot, savedProgress);
+        SaveRequest request = new SaveRequest(
+                playerName,
+                full || roomChanged ? currentRoom : null,
+                questionedSuspects(full),
+                discoveredClues,
+                full ? currentCase : null,
+                seq,
+                progressChanged ? snapshot : null
+        );
+        markSaved();
+        savedSeq = seq;
+        savedProgress = snapshot;
+
+        if (request.isEmpty()) {
+            //The journalled actions changed nothing a save keeps, so they can go unless an earlier save still needs them
+            if (savesInFlight.get() == 0) {
+                compactJournal(seq);
+            }
+            if (announce) {
+                emit(GameEvent.Type.NOTHING_TO_SAVE, "Nothing new to save.");
+            }
+            return;
+        }
+        savesInFlight.incrementAndGet();
+        services.getSaveQueue().submit(request, new SaveCallback(fromSeq, seq, full, announce));
+
+        if (announce) {
+            emit(GameEvent.Type.SAVE_QUEUED, "Saving game from " + currentRoom + "...");
+        }
+    }
+
+    //Questioned flags for the save: every suspect for a full save, otherwise only those questioned since the last one
+    private Map<String, Boolean> questionedSuspects(boolean all){
+        Map<String, Boolean> flags = new LinkedHashMap<>();
+        List<CaseDefinition.SuspectSpec> suspects = caseDefinition.getSuspects();
+        for (int s = 0; s < suspects.size(); s++) {
+            if (all || progress.isQuestionedChanged(s)) {
+                flags.put(suspects.get(s).getName(), progress.isQuestioned(s));
+            }
+        }
+        return flags;
+    }
+
+    //Clears the change tracking once the changes have been handed to a save
+    private void markSaved(){
+        progress.markSaved();
+        roomChanged = false;
+        caseChanged = false;
+    }
+
+    //Reports one save's result, and cuts the journal back to it once it is committed
+    //The save holds the changes journalled after fromSeq up to seq
+    private class SaveCallback implements SaveQueue.SaveListener {
+        private final long fromSeq;
+        private final long seq;
+        private final boolean full;
+        private final boolean announce;
+
+        SaveCallback(long fromSeq, long seq, boolean full, boolean announce){
+            this.fromSeq = fromSeq;
+            this.seq = seq;
+            this.full = full;
+            this.announce = announce;
+        }
+
+        @Override
+        public void onSaveComplete(String player, long latencyMillis) {
+            savesInFlight.decrementAndGet();
+            if (full) {
+                //A full save taken after a failed one carries everything the failed one had
+                keepJournalFrom.updateAndGet(kept -> seq > kept ? Long.MAX_VALUE : kept);
+            }
+            compactJournal(seq);
+            SaveQueue queue = services.getSaveQueue();
+            Log.debug("SAVE", () -> "Saved " + player + " in " + latencyMillis + "ms (queue depth "
+                    + queue.getQueueDepth() + ", avg " + queue.getAverageLatencyMillis() + "ms)");
+            if (announce) {
+                listener.onEvent(new GameEvent(GameEvent.Type.SAVED, "Game Saved Successfully!", currentRoom));
+            }
+        }
+
+        @Override
+        public void onSaveFailed(String player, Exception error) {
+            savesInFlight.decrementAndGet();
+            Log.error("SAVE", "Save failed for " + player, error);
+            //The failed changes are gone, so the next save writes everything
+            //and until it commits the journal keeps them
+            saveEverything.set(true);
+            keepJournalFrom.accumulateAndGet(fromSeq, Math::min);
+            if (announce) {
+                listener.onEvent(new GameEvent(GameEvent.Type.SAVE_FAILED,
+                        "Error saving game: " + error.getMessage(), currentRoom));
+            }
+        }
+    }
+
+    //A journal write, see record
+    private interface JournalWrite {
+        void write(SessionJournal journal) throws IOException;
+    }
+
+    //Appends an action to the journal and takes a save every SNAPSHOT_INTERVAL actions
+    //A journal that can't be written is turned off rather than stopping the game
+    private void record(JournalWrite write){
+        SessionJournal j = journal;
+        if (j == null) return;
+        try {
+            write.write(j);
+        } catch (IOException e) {
+            Log.warn("JOURNAL", "Journal for {} failed, actions are no longer recorded: {}", playerName, e.getMessage());
+            close();
+            return;
+        }
+        if (j.getSeq() - savedSeq >= SNAPSHOT_INTERVAL && isInShip()) {
+            queueSave(false);
+        }
+    }
+
+    //Drops the journal records a committed save covers, keeping any a failed save still needs
+    private void compactJournal(long seq){
+        SessionJournal j = journal;
+        if (j == null || seq < 0) return;
+        try {
+            j.compact(Math.min(seq, keepJournalFrom.get()));
+        } catch (IOException e) {
+            Log.warn("JOURNAL", "Couldn't compact the journal for {}: {}", playerName, e.getMessage());
+        }
+    }
+
+    //Loads the player's saved game from the database
+    //Actions since that save are thrown away, the journal starts again from the save
+    private void loadGame(){
+        if (!services.hasDatabase()) {
+            emit(GameEvent.Type.ERROR, "Loading isn't available without a database.");
+            return;
+        }
+        try {
+            Log.debug("LOAD", "Starting load process");
+
+            GameState savedState = services.getDatabase().loadGameState(playerName);
+            if (savedState == null) {
+                emit(GameEvent.Type.NO_SAVED_GAME, "No saved game found.");
+                return;
+            }
+            if (!restore(savedState)) {
+                emit(GameEvent.Type.ERROR, "The saved case isn't in the case catalog.");
+                return;
+            }
+
+            //What was just loaded matches the database
+            markSaved();
+            saveEverything.set(false);
+            restartJournal(savedState.getJournalSeq());
+
+            emit(GameEvent.Type.GAME_LOADED, "Game Loaded Successfully!\n" +
+                    "You're in the " + currentRoom);
+        } catch (SQLException | IOException e) {
+            Log.error("LOAD", "Error during load: {}", e.getMessage());
+            emit(GameEvent.Type.ERROR, "Error loading game: " + e.getMessage());
+        }
+    }
+
+    //Rebuilds the game from a save, returns false if the saved case isn't in the catalog
+    private boolean restore(GameState savedState) throws IOException {
+        //rebuild the ship of the saved case so the saved clues land in the right rooms
+        Case savedCase = savedState.getCurrentCase();
+        CaseCatalog.Entry entry = savedCase != null ? services.catalog().findByTitle(savedCase.getTitle()) : null;
+        if (entry == null) {
+            return false;
+        }
+        useCase(services.getContent().caseDefinition(entry));
+
+        //restore game state
+        currentRoom = savedState.getCurrentRoom();
+        if (currentRoom == null || !shipRooms.containsKey(currentRoom)) {
+            currentRoom = caseDefinition.getStartRoom();
+        }
+        Log.debug("LOAD", "Successfully loaded room: {}", currentRoom);
+
+        currentCase = savedCase;
+        //The snapshot has everything, the progress rows are only needed for saves without a usable one
+        byte[] snapshot = savedState.getProgress();
+        if (snapshot != null) {
+            try {
+                progress.restore(snapshot);
+                savedProgress = snapshot;
+                return true;
+            } catch (IllegalArgumentException e) {
+                Log.warn("LOAD", "Ignoring the saved progress snapshot for {}: {}", playerName, e.getMessage());
+            }
+        }
+        for (Map.Entry<String, Boolean> questioned : savedState.getQuestionedSuspects().entrySet()) {
+            int suspect = caseDefinition.getSuspectId(questioned.getKey());
+            if (questioned.getValue() && suspect >= 0) {
+                progress.markQuestioned(suspect);
+            }
+        }
+        for (Clue clue : savedState.getDiscoveredClues()) {
+            progress.getClues().discover(clue.getDescription());
+        }
+        return true;
+    }
+
+    //Empties the journal so its next record follows a save
+    private void restartJournal(long seq){
+        savedSeq = seq;
+        keepJournalFrom.set(Long.MAX_VALUE);
+        SessionJournal j = journal;
+        if (j == null) return;
+        try {
+            j.reset(seq);
+        } catch (IOException e) {
+            Log.warn("JOURNAL", "Journal for {} failed, actions are no longer recorded: {}", playerName, e.getMessage());
+            close();
+        }
+    }
+
+    //Rebuilds the game as it was before a crash: the last save with the journalled actions replayed on top
+    private void recover(){
+        SessionJournal j = journal;
+        if (j == null) {
+            emit(GameEvent.Type.REJECTED, "There is no unsaved game to recover.");
+            return;
+        }
+        //The game being played is only replaced once the recovered one is complete
+        GameRollback before = new GameRollback();
+        try {
+            long start = System.nanoTime();
+            GameState savedState = services.getDatabase().loadGameState(playerName);
+
+            caseDefinition = null;
+            currentCase = null;
+            currentRoom = null;
+            long seq = 0;
+            if (savedState != null && restore(savedState)) {
+                seq = savedState.getJournalSeq();
+            }
+
+            int replayed;
+            try {
+                replayed = j.replay(seq, replayer);
+            } catch (IOException e) {
+                Log.warn("JOURNAL", "Can't replay the journal for {}: {}", playerName, e.getMessage());
+                replayed = 0;
+            }
+            if (caseDefinition == null) {
+                before.putBack();
+                emit(GameEvent.Type.NO_SAVED_GAME, "There is no game to recover.");
+                return;
+            }
+            if (currentRoom == null) {
+                currentRoom = caseDefinition.getStartRoom();
+            }
+
+            //The database doesn't have the replayed actions, so the next save writes everything
+            markSaved();
+            saveEverything.set(replayed > 0);
+            savedSeq = seq;
+            if (j.getSeq() < seq) {
+                restartJournal(seq);
+            }
+            int count = replayed;
+            Log.info("JOURNAL", () -> "Recovered " + playerName + " with " + count + " actions replayed in "
+                    + (System.nanoTime() - start) / 1_000_000 + "ms");
+
+            emit(GameEvent.Type.GAME_LOADED, "Game Recovered!\n" +
+                    "You're in the " + currentRoom +
+                    (replayed > 0 ? "\n(" + replayed + " unsaved actions replayed)" : ""));
+        } catch (SQLException | IOException e) {
+            before.putBack();
+            Log.error("LOAD", "Error during recovery: {}", e.getMessage());
+            emit(GameEvent.Type.ERROR, "Error recovering game: " + e.getMessage());
+        }
+    }
+
+    //The game as it was before a recovery started, put back if the recovery fails
+    //Restoring and replaying only ever build new objects, so holding on to the old ones is enough
+    private class GameRollback {
+        private final CaseDefinition caseDefinition = GameEngine.this.caseDefinition;
+        private final CaseText text = GameEngine.this.text;
+        private final Case currentCase = GameEngine.this.currentCase;
+        private final List<String> questions = GameEngine.this.questions;
+        private final Map<String, Integer> questionIds = GameEngine.this.questionIds;
+        private final Map<String, Room> shipRooms = GameEngine.this.shipRooms;
+        private final SessionProgress progress = GameEngine.this.progress;
+        private final byte[] savedProgress = GameEngine.this.savedProgress;
+        private final String currentRoom = GameEngine.this.currentRoom;
+        private final boolean roomChanged = GameEngine.this.roomChanged;
+        private final boolean caseChanged = GameEngine.this.caseChanged;
+
+        void putBack() {
+            GameEngine.this.caseDefinition = caseDefinition;
+            GameEngine.this.text = text;
+            GameEngine.this.currentCase = currentCase;
+            GameEngine.this.questions = questions;
+            GameEngine.this.questionIds = questionIds;
+            GameEngine.this.shipRooms = shipRooms;
+            GameEngine.this.progress = progress;
+            GameEngine.this.savedProgress = savedProgress;
+            GameEngine.this.currentRoom = currentRoom;
+            GameEngine.this.roomChanged = roomChanged;
+            GameEngine.this.caseChanged = caseChanged;
+        }
+    }
+
+    //Applies journal records to the game without showing or journalling them again
+    //Records that don't fit the case (e.g. the pack was edited since) are skipped
+    private class Replayer implements SessionJournal.Visitor {
+        @Override
+        public void onCase(String caseId) {
+            caseDefinition = null;
+            currentCase = null;
+            currentRoom = null;
+            CaseCatalog.Entry entry = services.catalog().findById(caseId);
+            if (entry == null) {
+                Log.warn("JOURNAL", "Journalled case {} isn't in the catalog", caseId);
+                return;
+            }
+            try {
+                useCase(services.getContent().caseDefinition(entry));
+            } catch (IOException e) {
+                Log.warn("JOURNAL", "Can't load journalled case {}: {}", caseId, e.getMessage());
+                return;
+            }
+            currentCase = caseDefinition.newCase();
+            caseChanged = true;
+        }
+
+        @Override
+        public void onRoom(int room) {
+            if (hasRoom(room)) {
+                currentRoom = caseDefinition.getGraph().nameOf(room);
+                roomChanged = true;
+            }
+        }
+
+        @Override
+        public void onSearch(int room) {
+            if (hasRoom(room)) {
+                discoverClues(room, null);
+            }
+        }
+
+        @Override
+        public void onQuestion(int suspect, int question) {
+            if (caseDefinition == null || suspect >= caseDefinition.getSuspects().size()) return;
+            if (question >= 0 && question < questions.size()) {
+                progress.markAsked(suspect, question);
+            }
+            progress.markQuestioned(suspect);
+        }
+
+        @Override
+        public void onAccuse(int suspect) {
+            //accusing doesn't change the game
+        }
+
+        private boolean hasRoom(int room) {
+            return caseDefinition != null && room < caseDefinition.getGraph().size();
+        }
+    }
+}
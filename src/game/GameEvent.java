@@ -0,0 +1,50 @@
+package game;
+
+/**
+ * Something that happened in a game, sent to the engine's GameListener
+ *
+ * Every event has the text a player would read. The type and the room let a client react without
+ * parsing that text, e.g. the Swing window updates its navigation buttons on ROOM_ENTERED.
+ */
+public final class GameEvent {
+
+    public enum Type {
+        CASE_OPENED,
+        CASE_STARTED,
+        ROOM_ENTERED,
+        SEARCHED,
+        CLUE_LIST,
+        ANSWERED,
+        CASE_SOLVED,
+        WRONG_ACCUSATION,
+        SAVE_QUEUED,
+        NOTHING_TO_SAVE,
+        SAVED,
+        SAVE_FAILED,
+        GAME_LOADED,
+        NO_SAVED_GAME,
+        REJECTED,       //the command doesn't make sense right now, nothing changed
+        ERROR
+    }
+
+    private final Type type;
+    private final String text;
+    private final String room;
+
+    public GameEvent(Type type, String text, String room){
+        this.type = type;
+        this.text = text;
+        this.room = room;
+    }
+
+    public Type getType(){ return type; }
+    public String getText(){ return text; }
+
+    //The player's room after the event, null if they haven't entered the ship
+    public String getRoom(){ return room; }
+
+    @Override
+    public String toString(){
+        return type + ": " + text;
+    }
+}
@@ -0,0 +1,7 @@
+package game;
+
+//Receives a game's events
+//Most are sent on the thread that executed the command, save results arrive on a save worker thread
+public interface GameListener {
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,174 @@
+package game;
+
+import data.CaseCatalog;
+import data.ContentRepository;
+import data.DatabaseManager;
+import data.SaveQueue;
+import util.BootTimer;
+import util.Log;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * What every game in a JVM shares: the content, the database and the save queue
+ *
+ * Engines only hold a reference to this, so starting another game costs its own progress and rooms
+ * and nothing else. Whoever creates the services owns them and calls shutdown when the games are done.
+ * Services made without a database run games that can't be saved or loaded.
+ *
+ * startInBackground opens the database and parses the content on background threads. Each getter
+ * waits only for the part it hands out, so a case can be started before the database is open.
+ */
+public class GameServices {
+    public static final String CASE_DIRECTORY = "src/resources/cases";
+    public static final String QUESTIONS_FILE = "src/resources/questions.txt";
+    public static final String JOURNAL_DIRECTORY = "journal";
+
+    private final ContentRepository content;
+    private final Path caseDirectory;
+    private final Path questionsFile;
+    private final Path journalDirectory;
+    //null without a database, otherwise done once it's open and its schema is current
+    private final CompletableFuture<DatabaseManager> dbManager;
+    private final CompletableFuture<SaveQueue> saveQueue;
+    //done once the catalog and its default case, or the question list, are parsed
+    private final CompletableFuture<?> casesReady;
+    private final CompletableFuture<?> questionsReady;
+
+    //The game's own content and database
+    public GameServices(){
+        this(new DatabaseManager());
+    }
+
+    public GameServices(DatabaseManager dbManager){
+        this(ContentRepository.shared(), Paths.get(CASE_DIRECTORY), Paths.get(QUESTIONS_FILE),
+                dbManager, new SaveQueue(dbManager), Paths.get(JOURNAL_DIRECTORY));
+    }
+
+    //A null journal directory turns journalling off
+    public GameServices(ContentRepository content, Path caseDirectory, Path questionsFile,
+                        DatabaseManager dbManager, SaveQueue saveQueue, Path journalDirectory){
+        this(content, caseDirectory, questionsFile, journalDirectory,
+                dbManager != null ? CompletableFuture.completedFuture(dbManager) : null,
+                saveQueue != null ? CompletableFuture.completedFuture(saveQueue) : null,
+                CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null));
+    }
+
+    private GameServices(ContentRepository content, Path caseDirectory, Path questionsFile, Path journalDirectory,
+                         CompletableFuture<DatabaseManager> dbManager, CompletableFuture<SaveQueue> saveQueue,
+                         CompletableFuture<?> casesReady, CompletableFuture<?> questionsReady){
+        this.content = content;
+        this.caseDirectory = caseDirectory;
+        this.questionsFile = questionsFile;
+        this.journalDirectory = journalDirectory;
+        this.dbManager = dbManager;
+        this.saveQueue = saveQueue;
+        this.casesReady = casesReady;
+        this.questionsReady = questionsReady;
+    }
+
+    //The game's own content and database, opened and parsed in parallel on background threads
+    //Returns straight away, each phase is timed by boot
+    public static GameServices startInBackground(BootTimer boot){
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService starter = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "boot-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ContentRepository content = ContentRepository.shared();
+        Path caseDirectory = Paths.get(CASE_DIRECTORY);
+        Path questionsFile = Paths.get(QUESTIONS_FILE);
+
+        CompletableFuture<DatabaseManager> db = CompletableFuture.supplyAsync(
+                () -> boot.time("database open and schema check", () -> new DatabaseManager()), starter);
+        CompletableFuture<SaveQueue> queue = db.thenApply(SaveQueue::new);
+        CompletableFuture<?> cases = CompletableFuture.runAsync(() -> {
+            CaseCatalog catalog = boot.time("case catalog", () -> content.catalog(caseDirectory));
+            if (catalog.getDefault() != null) {
+                boot.time("default case parse", () -> {
+                    try {
+                        return content.caseDefinition(catalog.getDefault());
+                    } catch (IOException e) {
+                        //reported again when a game starts the case
+                        Log.warn("CASE", "Can't read {}: {}", catalog.getDefault().getPath(), e.getMessage());
+                        return null;
+                    }
+                });
+            }
+        }, starter);
+        CompletableFuture<?> questions = CompletableFuture.runAsync(
+                () -> boot.time("question list", () -> content.questions(questionsFile)), starter);
+        CompletableFuture.allOf(queue, cases, questions).whenComplete((r, e) -> starter.shutdown());
+
+        return new GameServices(content, caseDirectory, questionsFile, Paths.get(JOURNAL_DIRECTORY),
+                db, queue, cases, questions);
+    }
+
+    //Done when everything started in the background is ready
+    public CompletableFuture<Void> ready(){
+        return dbManager != null
+                ? CompletableFuture.allOf(saveQueue, casesReady, questionsReady)
+                : CompletableFuture.allOf(casesReady, questionsReady);
+    }
+
+    //The game's content with no database, for smoke checks and load tests
+    public static GameServices withoutDatabase(){
+        return new GameServices(ContentRepository.shared(), Paths.get(CASE_DIRECTORY), Paths.get(QUESTIONS_FILE),
+                null, null, null);
+    }
+
+    public ContentRepository getContent(){ return content; }
+
+    public boolean hasDatabase(){
+        return dbManager != null;
+    }
+
+    //Wait for the database if it's still opening
+    public DatabaseManager getDatabase(){
+        return dbManager != null ? dbManager.join() : null;
+    }
+
+    public SaveQueue getSaveQueue(){
+        return saveQueue != null ? saveQueue.join() : null;
+    }
+    public Path getCaseDirectory(){ return caseDirectory; }
+
+    //Where each player's action journal is kept, null if games aren't journalled
+    public Path getJournalDirectory(){ return journalDirectory; }
+
+    //The current case catalog, re-read only if packs were added or removed
+    public CaseCatalog catalog(){
+        casesReady.join();
+        return content.catalog(caseDirectory);
+    }
+
+    //The shared question list, for cases that don't declare their own
+    public List<String> defaultQuestions(){
+        questionsReady.join();
+        return content.questions(questionsFile);
+    }
+
+    //The position of each question in a list from defaultQuestions()
+    public Map<String, Integer> defaultQuestionIds(List<String> questions){
+        return content.questionIds(questionsFile, questions);
+    }
+
+    //Waits for queued saves to be written, then closes the database
+    public void shutdown(long timeout, TimeUnit unit){
+        if (!hasDatabase()) return;
+        if (!getSaveQueue().shutdown(timeout, unit)) {
+            Log.warn("SAVE", "Timed out waiting for queued saves");
+        }
+        getDatabase().closeConnection();
+    }
+}
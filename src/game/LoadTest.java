@@ -0,0 +1,440 @@
+package game;
+
+import Model.CaseDefinition;
+import Model.ClueIndex;
+import Model.Direction;
+import Model.ShipGraph;
+import data.ConnectionPool;
+import data.ContentRepository;
+import data.DatabaseManager;
+import data.SaveQueue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Load test that plays the game with many bot detectives at once
+ *
+ * Every bot has its own GameEngine and follows a script: random walks the ship at random, search
+ * walks to every room it hasn't searched yet and then accuses, question asks every suspect every
+ * question and then accuses. A solved case is started again. Bots also save every saveEvery actions
+ * and load every loadEvery actions, each bot waiting for its own save before it loads.
+ *
+ * Each command is timed on the bot's thread and the report shows actions per second and latency
+ * percentiles per command type, plus save queue and connection pool contention when a database is used.
+ * Bots draw from their own Random seeded from seed, so a run with the same options makes the same
+ * moves, which the printed checksum shows.
+ *
+ * Usage: java game.LoadTest [bots=100] [threads=8] [actions=200] [script=random|search|question|mixed]
+ *        [seed=42] [db=temp|off] [journal=on|off] [saveEvery=20] [loadEvery=50] [csv=results.csv]
+ * db=temp plays against a fresh temporary SQLite file, journal=on journals into a temporary directory.
+ */
+public class LoadTest {
+
+    //Picks a bot's next command from the state of its game
+    private interface Script {
+        GameCommand next(GameEngine engine, Random random);
+    }
+
+    private static final GameCommand.Type[] TYPES = GameCommand.Type.values();
+
+    private final GameServices services;
+    private final int actions;
+    private final String script;
+    private final long seed;
+    private final int saveEvery;
+    private final int loadEvery;
+
+    public LoadTest(GameServices services, int actions, String script, long seed, int saveEvery, int loadEvery) {
+        this.services = services;
+        this.actions = actions;
+        this.script = script;
+        this.seed = seed;
+        this.saveEvery = saveEvery;
+        this.loadEvery = loadEvery;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int bots = Integer.parseInt(options.getOrDefault("bots", "100"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int actions = Integer.parseInt(options.getOrDefault("actions", "200"));
+        String script = options.getOrDefault("script", "mixed");
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        boolean useDatabase = options.getOrDefault("db", "off").equals("temp");
+        boolean useJournal = useDatabase && options.getOrDefault("journal", "on").equals("on");
+        int saveEvery = Integer.parseInt(options.getOrDefault("saveEvery", "20"));
+        int loadEvery = Integer.parseInt(options.getOrDefault("loadEvery", "50"));
+        if (!Arrays.asList("random", "search", "question", "mixed").contains(script)) {
+            throw new IllegalArgumentException("Unknown script: " + script);
+        }
+
+        Path dbFile = null;
+        Path journalDir = null;
+        DatabaseManager db = null;
+        GameServices services;
+        if (useDatabase) {
+            dbFile = Files.createTempFile("detective-load", ".db");
+            db = new DatabaseManager("jdbc:sqlite:" + dbFile, ConnectionPool.DEFAULT_READERS);
+            if (useJournal) {
+                journalDir = Files.createTempDirectory("detective-journal");
+            }
+            services = new GameServices(ContentRepository.shared(),
+                    Paths.get(GameServices.CASE_DIRECTORY), Paths.get(GameServices.QUESTIONS_FILE),
+                    db, new SaveQueue(db), journalDir);
+        } else {
+            services = GameServices.withoutDatabase();
+        }
+
+        System.out.println("Load test: " + bots + " bots on " + threads + " threads, " + actions
+                + " actions each, script " + script + ", seed " + seed
+                + (useDatabase ? ", temporary database" : ", no database")
+                + (useJournal ? " and journal" : ""));
+        try {
+            LoadTest test = new LoadTest(services, actions, script, seed,
+                    useDatabase ? saveEvery : 0, useDatabase ? loadEvery : 0);
+            Report report = test.run(bots, threads);
+            report.print(services);
+            if (options.containsKey("csv")) {
+                report.writeCsv(Paths.get(options.get("csv")));
+            }
+        } finally {
+            services.shutdown(30, TimeUnit.SECONDS);
+            if (dbFile != null) {
+                Files.deleteIfExists(dbFile);
+                Files.deleteIfExists(Paths.get(dbFile + "-wal"));
+                Files.deleteIfExists(Paths.get(dbFile + "-shm"));
+            }
+            if (journalDir != null) {
+                deleteDirectory(journalDir);
+            }
+        }
+    }
+
+    //Plays every bot and collects their timings
+    public Report run(int bots, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Bot>> futures = new ArrayList<>(bots);
+        long start = System.nanoTime();
+        try {
+            for (int b = 0; b < bots; b++) {
+                Bot bot = new Bot(b, scriptFor(b), new Random(seed * 1_000_003L + b));
+                futures.add(executor.submit(() -> {
+                    bot.play();
+                    return bot;
+                }));
+            }
+            Report report = new Report();
+            for (Future<Bot> future : futures) {
+                report.add(future.get());
+            }
+            report.elapsedNanos = System.nanoTime() - start;
+            return report;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Script scriptFor(int bot) {
+        String name = script.equals("mixed") ? new String[]{"random", "search", "question"}[bot % 3] : script;
+        switch (name) {
+            case "search": return LoadTest::exhaustiveSearch;
+            case "question": return LoadTest::questionEverything;
+            default: return LoadTest::randomWalk;
+        }
+    }
+
+    //Mostly moves, sometimes searches, lists clues, goes back or accuses someone at random
+    private static GameCommand randomWalk(GameEngine engine, Random random) {
+        int roll = random.nextInt(100);
+        if (roll < 20) return GameCommand.search();
+        if (roll < 25) return GameCommand.listClues();
+        if (roll < 28 && !engine.isAtStart()) return GameCommand.returnToStart();
+        if (roll < 30) {
+            List<String> suspects = engine.getSuspectNames();
+            return GameCommand.accuse(suspects.get(random.nextInt(suspects.size())));
+        }
+        List<Direction> open = new ArrayList<>(4);
+        for (Direction d : Direction.values()) {
+            if (engine.canMove(d)) open.add(d);
+        }
+        return open.isEmpty() ? GameCommand.search() : GameCommand.move(open.get(random.nextInt(open.size())));
+    }
+
+    //Searches the current room if it still hides clues, otherwise heads for the nearest room that does
+    //Accuses the killer once every clue is found
+    private static GameCommand exhaustiveSearch(GameEngine engine, Random random) {
+        CaseDefinition definition = engine.getCaseDefinition();
+        ShipGraph graph = definition.getGraph();
+        int here = graph.idOf(engine.getCurrentRoom());
+        if (hasHiddenClues(engine, here)) {
+            return GameCommand.search();
+        }
+        int target = ShipGraph.NO_ROOM;
+        int best = Integer.MAX_VALUE;
+        for (int room = 0; room < graph.size(); room++) {
+            int distance = graph.distance(here, room);
+            if (distance > 0 && distance < best && hasHiddenClues(engine, room)) {
+                target = room;
+                best = distance;
+            }
+        }
+        if (target == ShipGraph.NO_ROOM) {
+            return GameCommand.accuse(guilty(definition));
+        }
+        int step = graph.nextStep(here, target);
+        for (Direction d : Direction.values()) {
+            if (graph.exit(here, d) == step) return GameCommand.move(d);
+        }
+        return GameCommand.search();
+    }
+
+    private static boolean hasHiddenClues(GameEngine engine, int room) {
+        CaseDefinition definition = engine.getCaseDefinition();
+        ClueIndex clues = engine.getProgress().getClues();
+        for (int c = definition.getFirstClueId(room); c < definition.getClueEnd(room); c++) {
+            if (!clues.isDiscovered(c)) return true;
+        }
+        return false;
+    }
+
+    //Asks every suspect every question, in order, then accuses the killer
+    private static GameCommand questionEverything(GameEngine engine, Random random) {
+        for (String suspect : engine.getSuspectNames()) {
+            List<String> unasked = engine.getUnaskedQuestions(suspect);
+            if (!unasked.isEmpty()) {
+                return GameCommand.question(suspect, unasked.get(0));
+            }
+        }
+        return GameCommand.accuse(guilty(engine.getCaseDefinition()));
+    }
+
+    private static String guilty(CaseDefinition definition) {
+        for (CaseDefinition.SuspectSpec s : definition.getSuspects()) {
+            if (s.isGuilty()) return s.getName();
+        }
+        return definition.getSuspects().get(0).getName();
+    }
+
+    //One detective, played on one thread from start to finish
+    private class Bot implements GameListener {
+        final int index;
+        final Script script;
+        final Random random;
+        final GameEngine engine;
+        //latencies per command type, in nanoseconds
+        final long[][] latencies = new long[TYPES.length][];
+        final int[] counts = new int[TYPES.length];
+        final int[] events = new int[GameEvent.Type.values().length];
+        long checksum = 17;
+        private final Object saveLock = new Object();
+        private int pendingSaves;
+        private volatile boolean solved;
+
+        Bot(int index, Script script, Random random) {
+            this.index = index;
+            this.script = script;
+            this.random = random;
+            this.engine = new GameEngine("bot-" + index, services, this);
+        }
+
+        void play() throws InterruptedException {
+            try {
+                for (int i = 0; i < actions; i++) {
+                    GameCommand command;
+                    if (!engine.isInShip() || solved) {
+                        solved = false;
+                        command = GameCommand.startCase(null);
+                    } else if (saveEvery > 0 && i % saveEvery == saveEvery - 1) {
+                        command = GameCommand.save();
+                    } else if (loadEvery > 0 && i % loadEvery == loadEvery - 1) {
+                        awaitSaves();
+                        command = GameCommand.load();
+                    } else {
+                        command = script.next(engine, random);
+                    }
+                    checksum = checksum * 31 + describe(command).hashCode();
+
+                    long start = System.nanoTime();
+                    engine.execute(command);
+                    record(command.getType(), System.nanoTime() - start);
+                }
+                awaitSaves();
+            } finally {
+                engine.close();
+            }
+        }
+
+        private String describe(GameCommand command) {
+            return command.getType() + "|" + command.getTarget() + "|" + command.getQuestion() + "|" + command.getDirection();
+        }
+
+        private void record(GameCommand.Type type, long nanos) {
+            int t = type.ordinal();
+            if (latencies[t] == null) {
+                latencies[t] = new long[64];
+            } else if (counts[t] == latencies[t].length) {
+                latencies[t] = Arrays.copyOf(latencies[t], counts[t] * 2);
+            }
+            latencies[t][counts[t]++] = nanos;
+        }
+
+        //Loads only see what was saved, so waiting for the bot's own saves keeps runs the same
+        private void awaitSaves() throws InterruptedException {
+            synchronized (saveLock) {
+                while (pendingSaves > 0) {
+                    saveLock.wait();
+                }
+            }
+        }
+
+        @Override
+        public void onEvent(GameEvent event) {
+            synchronized (saveLock) {
+                events[event.getType().ordinal()]++;
+                switch (event.getType()) {
+                    case SAVE_QUEUED:
+                        pendingSaves++;
+                        break;
+                    case SAVED:
+                    case SAVE_FAILED:
+                        pendingSaves--;
+                        saveLock.notifyAll();
+                        break;
+                    case CASE_SOLVED:
+                        solved = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    //Every bot's timings put together
+    public static class Report {
+        private final long[][] latencies = new long[TYPES.length][0];
+        private final int[] events = new int[GameEvent.Type.values().length];
+        private long checksum = 17;
+        private long total;
+        private long elapsedNanos;
+
+        private void add(Bot bot) {
+            for (int t = 0; t < TYPES.length; t++) {
+                int count = bot.counts[t];
+                if (count == 0) continue;
+                int old = latencies[t].length;
+                latencies[t] = Arrays.copyOf(latencies[t], old + count);
+                System.arraycopy(bot.latencies[t], 0, latencies[t], old, count);
+                total += count;
+            }
+            synchronized (bot.saveLock) {
+                for (int e = 0; e < events.length; e++) {
+                    events[e] += bot.events[e];
+                }
+            }
+            checksum = checksum * 31 + bot.checksum;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public double getActionsPerSecond() {
+            return total / (elapsedNanos / 1e9);
+        }
+
+        private void print(GameServices services) {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%-16s %9s %12s %10s %10s %10s %10s%n",
+                    "action", "count", "ops/s", "p50 us", "p99 us", "p999 us", "max us");
+            for (int t = 0; t < TYPES.length; t++) {
+                long[] sorted = latencies[t];
+                if (sorted.length == 0) continue;
+                Arrays.sort(sorted);
+                System.out.printf("%-16s %9d %12.1f %10.1f %10.1f %10.1f %10.1f%n",
+                        TYPES[t].name().toLowerCase(), sorted.length, sorted.length / seconds,
+                        percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3,
+                        percentile(sorted, 0.999) / 1e3, sorted[sorted.length - 1] / 1e3);
+            }
+            System.out.printf("%-16s %9d %12.1f%n", "all", total, getActionsPerSecond());
+            System.out.printf("Elapsed %.2fs, checksum %016x%n", seconds, checksum);
+
+            StringBuilder sb = new StringBuilder("Events:");
+            GameEvent.Type[] types = GameEvent.Type.values();
+            for (int e = 0; e < events.length; e++) {
+                if (events[e] > 0) sb.append(' ').append(types[e].name().toLowerCase()).append('=').append(events[e]);
+            }
+            System.out.println(sb);
+
+            SaveQueue queue = services.getSaveQueue();
+            if (queue != null) {
+                System.out.printf("Save queue: %d completed, %d failed, %d coalesced, avg %.1fms, max %dms%n",
+                        queue.getCompletedCount(), queue.getFailedCount(), queue.getCoalescedCount(),
+                        queue.getAverageLatencyMillis(), queue.getMaxLatencyMillis());
+            }
+            if (services.hasDatabase()) {
+                long[] pool = services.getDatabase().getPoolContentionStats();
+                System.out.printf("Readers: %d borrows, %d waited, %.1fms waiting%n",
+                        pool[0], pool[1], pool[2] / 1e6);
+                System.out.printf("Writer: %d locks, %d waited, %.1fms waiting%n",
+                        pool[3], pool[4], pool[5] / 1e6);
+            }
+        }
+
+        private void writeCsv(Path path) throws IOException {
+            double seconds = elapsedNanos / 1e9;
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+                out.println("action,count,ops_per_sec,p50_ns,p99_ns,p999_ns,max_ns");
+                for (int t = 0; t < TYPES.length; t++) {
+                    long[] sorted = latencies[t];
+                    if (sorted.length == 0) continue;
+                    out.println(TYPES[t].name().toLowerCase() + "," + sorted.length + "," + sorted.length / seconds
+                            + "," + percentile(sorted, 0.50) + "," + percentile(sorted, 0.99) + ","
+                            + percentile(sorted, 0.999) + "," + sorted[sorted.length - 1]);
+                }
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,95 @@
+package gui;
+
+import util.Log;
+
+import javax.swing.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports when the Swing event thread is blocked for longer than a threshold
+ *
+ * A daemon thread posts a small heartbeat to the event thread and checks that it ran in time. When it
+ * didn't, the event thread's stack is logged once, and again how long the block lasted once it clears.
+ */
+public class EdtWatchdog {
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+    private final long thresholdNanos;
+    private final Thread thread;
+    private volatile Thread eventThread;
+    //when the heartbeat waiting to run was posted, 0 once it ran
+    private volatile long postedAt;
+    private volatile boolean running;
+    private long blockedCount;
+    private long longestBlockNanos;
+
+    public EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.thread = new Thread(this::watch, "edt-watchdog");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    //Blocks seen so far
+    public synchronized long getBlockedCount() {
+        return blockedCount;
+    }
+
+    public synchronized long getLongestBlockMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(longestBlockNanos);
+    }
+
+    private void watch() {
+        long checkMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(thresholdNanos) / 2);
+        while (running) {
+            long posted = System.nanoTime();
+            postedAt = posted;
+            SwingUtilities.invokeLater(() -> {
+                eventThread = Thread.currentThread();
+                postedAt = 0;
+            });
+
+            boolean reported = false;
+            try {
+                while (running && postedAt == posted) {
+                    Thread.sleep(checkMillis);
+                    long waited = System.nanoTime() - posted;
+                    if (!reported && postedAt == posted && waited > thresholdNanos) {
+                        reported = true;
+                        Log.warn("EDT", "Event thread blocked for over {}ms at:{}",
+                                TimeUnit.NANOSECONDS.toMillis(waited), stackOf(eventThread));
+                    }
+                }
+                if (reported) {
+                    long blocked = System.nanoTime() - posted;
+                    synchronized (this) {
+                        blockedCount++;
+                        longestBlockNanos = Math.max(longestBlockNanos, blocked);
+                    }
+                    Log.warn("EDT", "Event thread was blocked for {}ms", TimeUnit.NANOSECONDS.toMillis(blocked));
+                }
+                Thread.sleep(checkMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static String stackOf(Thread t) {
+        if (t == null) return " (event thread not started)";
+        StringBuilder sb = new StringBuilder();
+        for (StackTraceElement e : t.getStackTrace()) {
+            sb.append("\n    at ").append(e);
+        }
+        return sb.toString();
+    }
+}
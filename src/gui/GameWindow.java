@@ -1,5 +1,7 @@
 package gui;
 
+import Model.Direction;
+
 import javax.swing.*;
 import java.awt.*;
 
@@ -7,13 +9,22 @@ import java.awt.*;
  * Main game window for the Java Detective game
  * Handles all UI components and provides access to interactive elements
  */
+@SuppressWarnings("serial")
 public class GameWindow extends JFrame {
+    //lines of game text kept on screen, older ones scroll off for good
+    public static final int DEFAULT_TRANSCRIPT_LINES = 2000;
+
     private JButton startCaseBtn, viewCluesBtn, questionSuspectsBtn, makeAccusationBtn, exitBtn,
-                    northBtn, southBtn, searchBtn, returnToEngineBtn, saveBtn, loadBtn;
-    private JTextArea displayArea;
+                    northBtn, southBtn, eastBtn, westBtn, searchBtn, returnToEngineBtn, saveBtn, loadBtn;
+    private TranscriptArea displayArea;
 
     //Constructs and initializes the game window with all UI components
     public GameWindow(){
+        this(DEFAULT_TRANSCRIPT_LINES);
+    }
+
+    //Keeps at most transcriptLines lines of game text
+    public GameWindow(int transcriptLines){
         //Window Setup
         setTitle("Java Detective");
         setSize(800, 600);
@@ -31,13 +42,14 @@ public class GameWindow extends JFrame {
         //Initialize Navigation buttons
         northBtn = new JButton("North");
         southBtn = new JButton("South");
+        eastBtn = new JButton("East");
+        westBtn = new JButton("West");
         searchBtn = new JButton("Search Room");
         returnToEngineBtn = new JButton("Return to Engine Room");
         returnToEngineBtn.setEnabled(false); //disabled by default
 
         //Configure main text display area
-        displayArea = new JTextArea();
-        displayArea.setEditable(false);
+        displayArea = new TranscriptArea(transcriptLines);
         displayArea.setLineWrap(true);
         displayArea.setWrapStyleWord(true);
         displayArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
@@ -70,9 +82,11 @@ public class GameWindow extends JFrame {
         buttonPanel.add(exitBtn);
 
         //create panel for navigation controls
-        JPanel navPanel = new JPanel(new GridLayout(1, 3));
+        JPanel navPanel = new JPanel(new GridLayout(1, 7));
         navPanel.add(northBtn);
         navPanel.add(southBtn);
+        navPanel.add(eastBtn);
+        navPanel.add(westBtn);
         navPanel.add(returnToEngineBtn);
         navPanel.add(searchBtn);
 
@@ -95,8 +109,9 @@ public class GameWindow extends JFrame {
     }
 
 
+    //Adds text to the end of the transcript, batched with anything else shown in the same frame
     public void displayText(String text){
-        displayArea.setText(text);
+        displayArea.appendEntry(text);
     }
 
     //getters
@@ -127,6 +142,21 @@ public class GameWindow extends JFrame {
     public JButton getSouthBtn(){
         return southBtn;
     }
+    public JButton getEastBtn(){
+        return eastBtn;
+    }
+    public JButton getWestBtn(){
+        return westBtn;
+    }
+    //Gets the button for a direction
+    public JButton getDirectionBtn(Direction direction){
+        switch (direction) {
+            case NORTH: return northBtn;
+            case SOUTH: return southBtn;
+            case EAST: return eastBtn;
+            default: return westBtn;
+        }
+    }
     public JButton getSearchBtn(){
         return searchBtn;
     }
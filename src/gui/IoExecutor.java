@@ -0,0 +1,196 @@
+package gui;
+
+import util.Log;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the window's file and database work on a background thread
+ *
+ * Work runs one task at a time, in the order it was submitted, so a game that isn't thread safe can be
+ * driven from here. Each result is handed back on the event thread. While work is in flight the
+ * registered controls are disabled, and cancel() throws away everything submitted so far: tasks that
+ * haven't started are cancelled and the results of a running one are dropped. replace() does the same
+ * for work that makes everything before it stale, such as starting another case.
+ *
+ * Everything but shutdown() must be called on the event thread.
+ */
+public class IoExecutor {
+
+    //Told on the event thread when the executor goes busy or idle
+    public interface BusyListener {
+        void onBusyChanged(boolean busy);
+    }
+
+    private final ExecutorService worker;
+    private final List<JComponent> controls = new ArrayList<>();
+    private final List<BusyListener> busyListeners = new ArrayList<>();
+    //bumped by cancel(), a task only runs and delivers if the generation hasn't moved on
+    private final AtomicInteger generation = new AtomicInteger();
+    //tasks submitted and not yet delivered, only touched on the event thread
+    private final List<Task<?>> inFlight = new ArrayList<>();
+
+    public IoExecutor(String threadName) {
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    //Controls that are disabled while work is in flight, the busy listeners decide what to re-enable
+    public void disableWhileBusy(JComponent... components) {
+        for (JComponent c : components) {
+            controls.add(c);
+        }
+    }
+
+    public void addBusyListener(BusyListener listener) {
+        busyListeners.add(listener);
+    }
+
+    //True while submitted work hasn't delivered its result
+    public boolean isBusy() {
+        return !inFlight.isEmpty();
+    }
+
+    //Runs work in the background with nothing to deliver
+    public void submit(String description, Runnable work) {
+        submit(description, work, () -> { });
+    }
+
+    //Runs work in the background, then onDone on the event thread
+    public void submit(String description, Runnable work, Runnable onDone) {
+        submit(description, () -> {
+            work.run();
+            return null;
+        }, result -> onDone.run());
+    }
+
+    //Runs work in the background, then passes its result to onDone on the event thread
+    //A failure is logged and onDone isn't called.
+    public <T> void submit(String description, Callable<T> work, Consumer<T> onDone) {
+        Task<T> task = new Task<>(description, generation.get(), work, onDone);
+        if (inFlight.isEmpty()) {
+            setBusy(true);
+        }
+        inFlight.add(task);
+        task.future = worker.submit(task);
+    }
+
+    //Cancels everything submitted so far and runs work in its place
+    public void replace(String description, Runnable work) {
+        dropInFlight();
+        submit(description, work);
+    }
+
+    public <T> void replace(String description, Callable<T> work, Consumer<T> onDone) {
+        dropInFlight();
+        submit(description, work, onDone);
+    }
+
+    //Throws away everything submitted so far, work already running still finishes
+    public void cancel() {
+        boolean wasBusy = isBusy();
+        dropInFlight();
+        if (wasBusy && !isBusy()) {
+            setBusy(false);
+        }
+    }
+
+    //Moves on a generation and cancels the tasks that haven't started, those never deliver
+    //A running task can't be stopped, it stays in flight until its dropped result comes back
+    private void dropInFlight() {
+        generation.incrementAndGet();
+        for (Iterator<Task<?>> it = inFlight.iterator(); it.hasNext(); ) {
+            Task<?> task = it.next();
+            if (task.claimed.compareAndSet(false, true)) {
+                task.future.cancel(false);
+                Log.debug("IO", "Cancelled {} before it started", task.description);
+                it.remove();
+            }
+        }
+    }
+
+    private final class Task<T> implements Runnable {
+        private final String description;
+        private final int submittedIn;
+        private final Callable<T> work;
+        private final Consumer<T> onDone;
+        //set right after submitting, before the event thread can look at it again
+        private Future<?> future;
+        //taken by whichever comes first, the worker starting the task or a cancel
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Task(String description, int submittedIn, Callable<T> work, Consumer<T> onDone) {
+            this.description = description;
+            this.submittedIn = submittedIn;
+            this.work = work;
+            this.onDone = onDone;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) return;
+            T result = null;
+            Exception failure = null;
+            if (generation.get() == submittedIn) {
+                long start = System.nanoTime();
+                try {
+                    result = work.call();
+                } catch (Exception e) {
+                    failure = e;
+                }
+                Log.debug("IO", "{} took {}ms", description, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            T delivered = result;
+            Exception failed = failure;
+            SwingUtilities.invokeLater(() -> deliver(delivered, failed));
+        }
+
+        private void deliver(T result, Exception failure) {
+            inFlight.remove(this);
+            if (inFlight.isEmpty()) {
+                setBusy(false);
+            }
+            if (generation.get() != submittedIn) {
+                Log.debug("IO", "Dropping {}, it was cancelled", description);
+            } else if (failure != null) {
+                Log.error("IO", description + " failed", failure);
+            } else {
+                onDone.accept(result);
+            }
+        }
+    }
+
+    private void setBusy(boolean busy) {
+        for (JComponent c : controls) {
+            c.setEnabled(!busy);
+        }
+        for (BusyListener l : busyListeners) {
+            l.onBusyChanged(busy);
+        }
+    }
+
+    //Lets the queued work finish and stops the thread, waiting up to the timeout
+    //Blocks, so call it off the event thread
+    public void shutdown(long timeout, TimeUnit unit) {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Text area that keeps a running transcript of the game
+ *
+ * New text is appended to the end instead of replacing the document, so Swing only lays out the new
+ * lines. Text added between two frames is collected and appended in one go by a timer on the event
+ * thread, and once the transcript is longer than its line limit the oldest lines are removed.
+ */
+@SuppressWarnings("serial")
+public class TranscriptArea extends JTextArea {
+    //about one frame at 60Hz
+    private static final int FRAME_MILLIS = 16;
+
+    private final int maxLines;
+    //text waiting for the next frame, guarded by itself
+    private final StringBuilder pending = new StringBuilder();
+    private final Timer frameTimer;
+
+    public TranscriptArea(int maxLines){
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("A transcript needs at least one line");
+        }
+        this.maxLines = maxLines;
+        setEditable(false);
+        frameTimer = new Timer(FRAME_MILLIS, e -> flush());
+        frameTimer.setRepeats(false);
+    }
+
+    public int getMaxLines(){
+        return maxLines;
+    }
+
+    //Adds an entry to the transcript, shown with the next frame
+    public void appendEntry(String text){
+        synchronized (pending) {
+            if (pending.length() > 0 || getDocument().getLength() > 0) {
+                pending.append("\n\n");
+            }
+            pending.append(text);
+        }
+        if (!frameTimer.isRunning()) {
+            frameTimer.start();
+        }
+    }
+
+    //Appends everything collected since the last frame, drops lines over the limit and scrolls to the end
+    public void flush(){
+        String text;
+        synchronized (pending) {
+            if (pending.length() == 0) return;
+            text = pending.toString();
+            pending.setLength(0);
+        }
+        Document doc = getDocument();
+        try {
+            doc.insertString(doc.getLength(), text, null);
+            int extra = getLineCount() - maxLines;
+            if (extra > 0) {
+                doc.remove(0, getLineStartOffset(extra));
+            }
+        } catch (BadLocationException e) {
+            //offsets come from the document itself
+            throw new IllegalStateException(e);
+        }
+        setCaretPosition(doc.getLength());
+    }
+}
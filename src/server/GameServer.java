@@ -0,0 +1,246 @@
+package server;
+
+import game.GameServices;
+import util.Log;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many games at once over a local TCP line protocol
+ *
+ * Each connection is one session with its own player and GameEngine, all sharing one GameServices.
+ * Sessions run on virtual threads when the JVM has them (Java 21+), so a blocked socket read costs no
+ * platform thread and thousands of sessions can be open at once. Older JVMs get a bounded pool with a
+ * thread per session instead, and a connection that finds every thread taken is told BUSY straight
+ * away rather than waiting unserved, so only as many sessions as there are threads can be open at once.
+ * The protocol is described in GameSession.
+ *
+ * Run with: java server.GameServer [port=7878] [maxSessions=10000] [idleSeconds=300]
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 7878;
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+    public static final int DEFAULT_IDLE_SECONDS = 300;
+
+    private final GameServices services;
+    private final int maxSessions;
+    private final int idleMillis;
+    private final Semaphore sessionPermits;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int sessionThreads;
+    private final ConcurrentHashMap<String, GameSession> players = new ConcurrentHashMap<>();
+    private final Set<GameSession> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicInteger peakSessions = new AtomicInteger();
+    private final AtomicLong acceptedSessions = new AtomicLong();
+    private final AtomicLong refusedSessions = new AtomicLong();
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean running;
+
+    public GameServer(GameServices services, int maxSessions, int idleSeconds) {
+        this.services = services;
+        this.maxSessions = maxSessions;
+        this.idleMillis = (int) TimeUnit.SECONDS.toMillis(idleSeconds);
+        this.sessionPermits = new Semaphore(maxSessions);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.sessionThreads = virtual != null ? maxSessions : boundedThreads(maxSessions);
+        this.executor = virtual != null ? virtual : newBoundedExecutor(sessionThreads);
+    }
+
+    //Executors.newVirtualThreadPerTaskExecutor() found by reflection, so the game still builds for older JVMs
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static int boundedThreads(int maxSessions) {
+        return Math.min(maxSessions, Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+
+    //A fixed pool for JVMs without virtual threads
+    //Nothing queues: a session is handed straight to a free thread or rejected, and rejected ones are told BUSY
+    private static ExecutorService newBoundedExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "session-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    //Starts listening on the loopback address, port 0 picks a free port
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        running = true;
+        acceptThread = new Thread(this::acceptLoop, "session-acceptor");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        Log.info("SERVER", "Listening on port {} ({})", getPort(),
+                virtualThreads ? "virtual threads" : "bounded thread pool");
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    //How many sessions can be open at the same moment, connections beyond it are told BUSY
+    public int getSessionThreadLimit() {
+        return sessionThreads;
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public int getPeakSessions() {
+        return peakSessions.get();
+    }
+
+    public long getAcceptedSessions() {
+        return acceptedSessions.get();
+    }
+
+    //Connections turned away because the server was full
+    public long getRefusedSessions() {
+        return refusedSessions.get();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                //closed by stop()
+                break;
+            } catch (IOException e) {
+                Log.warn("SERVER", "Accept failed: {}", e.getMessage());
+                continue;
+            }
+
+            if (!sessionPermits.tryAcquire()) {
+                refuse(socket, "Server is full");
+                continue;
+            }
+            try {
+                socket.setSoTimeout(idleMillis);
+                socket.setTcpNoDelay(true);
+                GameSession session = new GameSession(this, services, socket);
+                executor.execute(() -> runSession(session));
+                acceptedSessions.incrementAndGet();
+            } catch (IOException | RejectedExecutionException e) {
+                sessionPermits.release();
+                refuse(socket, "Server is busy");
+            }
+        }
+    }
+
+    private void runSession(GameSession session) {
+        sessions.add(session);
+        peakSessions.accumulateAndGet(activeSessions.incrementAndGet(), Math::max);
+        try {
+            session.run();
+        } finally {
+            sessions.remove(session);
+            activeSessions.decrementAndGet();
+            sessionPermits.release();
+        }
+    }
+
+    private void refuse(Socket socket, String reason) {
+        refusedSessions.incrementAndGet();
+        try (Socket s = socket) {
+            s.getOutputStream().write(("BUSY|-|" + reason + "\n").getBytes(GameSession.CHARSET));
+        } catch (IOException ignored) {
+            //the client is gone anyway
+        }
+    }
+
+    //Claims a player name for a session, false if another session is already playing as them
+    boolean claimPlayer(String playerName, GameSession session) {
+        return players.putIfAbsent(playerName, session) == null;
+    }
+
+    void releasePlayer(String playerName, GameSession session) {
+        players.remove(playerName, session);
+    }
+
+    //Stops accepting connections and waits for sessions to finish
+    public void stop(long timeout, TimeUnit unit) {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+        for (GameSession session : sessions) {
+            session.close();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                Log.warn("SERVER", "Sessions still running after shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.info("SERVER", "Stopped after {} sessions (peak {})", acceptedSessions.get(), peakSessions.get());
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        int idleSeconds = DEFAULT_IDLE_SECONDS;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) continue;
+            switch (kv[0]) {
+                case "port": port = Integer.parseInt(kv[1]); break;
+                case "maxSessions": maxSessions = Integer.parseInt(kv[1]); break;
+                case "idleSeconds": idleSeconds = Integer.parseInt(kv[1]); break;
+                default: Log.warn("SERVER", "Unknown option {}", kv[0]);
+            }
+        }
+
+        GameServices services = new GameServices();
+        GameServer server = new GameServer(services, maxSessions, idleSeconds);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(10, TimeUnit.SECONDS);
+            services.shutdown(10, TimeUnit.SECONDS);
+        }, "server-shutdown"));
+        server.start(port);
+    }
+}
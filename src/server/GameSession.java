@@ -0,0 +1,285 @@
+package server;
+
+import Model.Direction;
+import game.GameCommand;
+import game.GameEngine;
+import game.GameEvent;
+import game.GameServices;
+import util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * One connection to the game server, playing one game
+ *
+ * The client sends one command per line and reads lines of the form TYPE|room|text until a line
+ * saying END. The room is "-" outside the ship, and newlines in the text are written as \n.
+ *
+ *   HELLO name                 pick the player, required before anything else
+ *   OPEN [caseId]              load a case and read its briefing
+ *   START [caseId]             start a case at its start room
+ *   MOVE north|south|east|west
+ *   RETURN                     go back to the start room
+ *   SEARCH
+ *   CLUES
+ *   SUSPECTS                   LIST|room|name|name|...
+ *   QUESTIONS suspect          LIST|room|question|question|... (the ones not asked yet)
+ *   ASK suspect|question
+ *   ACCUSE suspect
+ *   SAVE
+ *   LOAD                       go back to the last save
+ *   RECOVER                    the last save plus the actions journalled since, after a crash
+ *   QUIT
+ *
+ * A session handles one command at a time and only reads the next line once the last answer is
+ * written, so a client can't queue up work faster than the game does it. Save results come from a
+ * save worker and wait in a small outbox until the session's next answer, the worker never blocks
+ * on a slow client. Lines are capped in length and idle connections are closed.
+ */
+class GameSession {
+    static final Charset CHARSET = StandardCharsets.UTF_8;
+    static final int MAX_LINE_LENGTH = 2048;
+    static final int OUTBOX_CAPACITY = 32;
+    private static final Pattern PLAYER_NAME = Pattern.compile("[A-Za-z0-9_.-]{1,32}");
+
+    private final GameServer server;
+    private final GameServices services;
+    private final Socket socket;
+    //save results waiting for the session thread, guarded by itself
+    private final ArrayDeque<GameEvent> outbox = new ArrayDeque<>();
+    private int droppedEvents;
+    private Writer out;
+    private GameEngine engine;
+    private String playerName;
+    private Thread sessionThread;
+
+    GameSession(GameServer server, GameServices services, Socket socket) {
+        this.server = server;
+        this.services = services;
+        this.socket = socket;
+    }
+
+    void run() {
+        sessionThread = Thread.currentThread();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), CHARSET));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), CHARSET))) {
+            out = writer;
+            send("READY", "Say HELLO <name> to start");
+            end();
+
+            String line;
+            while ((line = readLine(in)) != null) {
+                boolean more = handle(line.trim());
+                flushOutbox();
+                end();
+                if (!more) break;
+            }
+        } catch (SocketTimeoutException e) {
+            Log.debug("SERVER", "Closing idle session for {}", playerName);
+        } catch (IOException e) {
+            Log.debug("SERVER", "Session for {} ended: {}", playerName, e.getMessage());
+        } finally {
+            if (engine != null) {
+                engine.close();
+            }
+            if (playerName != null) {
+                server.releasePlayer(playerName, this);
+            }
+        }
+    }
+
+    //Reads a line of at most MAX_LINE_LENGTH characters, null at the end of the stream
+    private static String readLine(BufferedReader in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') return sb.toString();
+            if (c == '\r') continue;
+            if (sb.length() == MAX_LINE_LENGTH) {
+                throw new IOException("Line longer than " + MAX_LINE_LENGTH + " characters");
+            }
+            sb.append((char) c);
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    //Runs one line from the client, returns false when the session should end
+    private boolean handle(String line) throws IOException {
+        int space = line.indexOf(' ');
+        String verb = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+        String arg = space < 0 ? null : line.substring(space + 1).trim();
+        if (arg != null && arg.isEmpty()) arg = null;
+
+        if (verb.equals("QUIT")) {
+            send("BYE", "Goodbye");
+            return false;
+        }
+        if (verb.equals("HELLO")) {
+            hello(arg);
+            return true;
+        }
+        if (engine == null) {
+            send("ERROR", "Say HELLO <name> first");
+            return true;
+        }
+
+        switch (verb) {
+            case "OPEN":
+                engine.execute(GameCommand.openCase(arg));
+                break;
+            case "START":
+                engine.execute(GameCommand.startCase(arg));
+                break;
+            case "MOVE":
+                Direction direction = arg == null ? null : Direction.parse(arg);
+                if (direction == null) {
+                    send("ERROR", "MOVE needs north, south, east or west");
+                } else {
+                    engine.execute(GameCommand.move(direction));
+                }
+                break;
+            case "RETURN":
+                engine.execute(GameCommand.returnToStart());
+                break;
+            case "SEARCH":
+                engine.execute(GameCommand.search());
+                break;
+            case "CLUES":
+                engine.execute(GameCommand.listClues());
+                break;
+            case "SUSPECTS":
+                sendList(engine.getSuspectNames());
+                break;
+            case "QUESTIONS":
+                sendList(engine.getUnaskedQuestions(arg));
+                break;
+            case "ASK":
+                int bar = arg == null ? -1 : arg.indexOf('|');
+                if (bar < 0) {
+                    send("ERROR", "ASK needs suspect|question");
+                } else {
+                    engine.execute(GameCommand.question(arg.substring(0, bar).trim(), arg.substring(bar + 1).trim()));
+                }
+                break;
+            case "ACCUSE":
+                engine.execute(GameCommand.accuse(arg));
+                break;
+            case "SAVE":
+                engine.execute(GameCommand.save());
+                break;
+            case "LOAD":
+                engine.execute(GameCommand.load());
+                break;
+            case "RECOVER":
+                engine.execute(GameCommand.recover());
+                break;
+            default:
+                send("ERROR", "Unknown command " + verb);
+        }
+        return true;
+    }
+
+    //Picks the session's player, each player can only be in one session at a time
+    private void hello(String name) throws IOException {
+        if (engine != null) {
+            send("ERROR", "You are already playing as " + playerName);
+        } else if (name == null || !PLAYER_NAME.matcher(name).matches()) {
+            send("ERROR", "Player names are 1-32 letters, digits, '.', '_' or '-'");
+        } else if (!server.claimPlayer(name, this)) {
+            send("ERROR", "Player " + name + " is already connected");
+        } else {
+            playerName = name;
+            engine = new GameEngine(name, services, this::onEvent);
+            send("WELCOME", name);
+            if (engine.hasUnsavedActions()) {
+                send("INFO", "Your last game ended without saving, RECOVER continues it");
+            }
+        }
+    }
+
+    //Events from the engine, written straight away on the session thread and kept for later otherwise
+    private void onEvent(GameEvent event) {
+        if (Thread.currentThread() == sessionThread) {
+            try {
+                send(event.getType().name(), event.getRoom(), event.getText());
+            } catch (IOException e) {
+                //the next write or read fails the same way and ends the session
+                Log.debug("SERVER", "Write failed for {}: {}", playerName, e.getMessage());
+            }
+            return;
+        }
+        synchronized (outbox) {
+            if (outbox.size() < OUTBOX_CAPACITY) {
+                outbox.add(event);
+            } else {
+                droppedEvents++;
+            }
+        }
+    }
+
+    private void flushOutbox() throws IOException {
+        int dropped;
+        GameEvent[] waiting;
+        synchronized (outbox) {
+            if (outbox.isEmpty() && droppedEvents == 0) return;
+            waiting = outbox.toArray(new GameEvent[0]);
+            outbox.clear();
+            dropped = droppedEvents;
+            droppedEvents = 0;
+        }
+        for (GameEvent event : waiting) {
+            send(event.getType().name(), event.getRoom(), event.getText());
+        }
+        if (dropped > 0) {
+            send("WARN", dropped + " events were dropped");
+        }
+    }
+
+    private void sendList(List<String> items) throws IOException {
+        send("LIST", String.join("|", items));
+    }
+
+    private void send(String type, String text) throws IOException {
+        send(type, engine != null ? engine.getCurrentRoom() : null, text);
+    }
+
+    private void send(String type, String room, String text) throws IOException {
+        out.write(type);
+        out.write('|');
+        out.write(room == null ? "-" : room);
+        out.write('|');
+        out.write(escape(text));
+        out.write('\n');
+    }
+
+    private void end() throws IOException {
+        out.write("END\n");
+        out.flush();
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    //Closes the connection, the session thread sees the socket fail and finishes
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package server;
+
+import game.GameServices;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ServerSmokeTest {
+
+    //A client's end of one session
+    private static class Client implements AutoCloseable {
+        final Socket socket;
+        final BufferedReader in;
+        final OutputStream out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(30_000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), GameSession.CHARSET));
+            out = socket.getOutputStream();
+        }
+
+        void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(GameSession.CHARSET));
+            out.flush();
+        }
+
+        //Reads an answer up to END, returns its lines
+        List<String> read() throws IOException {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("END")) {
+                lines.add(line);
+            }
+            if (line == null) throw new IOException("Server closed the session: " + lines);
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Starts a server and plays a short game in many sessions at once
+     * Every session says hello, starts the case, searches, moves, lists suspects and accuses the killer.
+     * All sessions are connected before any of them plays, so they really are open at the same time.
+     * That only works on a JVM with virtual threads (Java 21+). Older JVMs serve one session per pool
+     * thread, so there the concurrency check is skipped and only a pool's worth of sessions is played
+     * to check the protocol.
+     * Options: sessions=2000 db=off|on (on also saves every session)
+     */
+    public static void main(String[] args){
+        int sessions = 2000;
+        boolean useDatabase = false;
+        for (String arg : args) {
+            if (arg.startsWith("sessions=")) sessions = Integer.parseInt(arg.substring(9));
+            if (arg.equals("db=on")) useDatabase = true;
+        }
+
+        GameServices services = useDatabase ? new GameServices() : GameServices.withoutDatabase();
+        GameServer server = new GameServer(services, sessions, 60);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try {
+            server.start(0);
+            System.out.println("Server started on port " + server.getPort() + " using "
+                    + (server.isUsingVirtualThreads() ? "virtual threads" : "a bounded pool of "
+                    + server.getSessionThreadLimit() + " threads"));
+
+            if (!server.isUsingVirtualThreads()) {
+                int limit = Math.min(sessions, server.getSessionThreadLimit());
+                System.out.println("SKIPPED concurrency check: " + sessions + " simultaneous sessions need virtual"
+                        + " threads (Java 21+), this JVM serves at most " + server.getSessionThreadLimit()
+                        + " at once. Checking the protocol with " + limit + " sessions instead.");
+                sessions = limit;
+            }
+
+            int threadsBefore = threads.getThreadCount();
+            long start = System.nanoTime();
+            int peakThreads = Math.max(threadsBefore, playAll(server.getPort(), sessions, useDatabase, threads));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.out.println("YES!! " + sessions + " simultaneous sessions played in " + millis + "ms");
+            System.out.println("Peak simultaneous sessions: " + server.getPeakSessions());
+            System.out.println("Platform threads: " + threadsBefore + " before, " + peakThreads + " at peak");
+            System.out.println("Sessions refused: " + server.getRefusedSessions());
+        } catch (Exception e) {
+            System.err.println("NO!! Server error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            server.stop(10, TimeUnit.SECONDS);
+            services.shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
+    //Opens every session, then steps them all through the game together
+    //Returns the number of live threads while they were all connected
+    private static int playAll(int port, int count, boolean save, ThreadMXBean threads) throws IOException {
+        List<Client> clients = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                clients.add(new Client(port));
+            }
+            expectAll(clients, null, "READY");
+            for (int i = 0; i < count; i++) {
+                clients.get(i).send("HELLO smoke-" + i);
+            }
+            expectAll(clients, null, "WELCOME");
+            int liveThreads = threads.getThreadCount();
+
+            expectAll(clients, "START", "CASE_STARTED");
+            expectAll(clients, "SEARCH", "SEARCHED");
+            expectAll(clients, "MOVE north", "ROOM_ENTERED");
+            expectAll(clients, "SUSPECTS", "LIST");
+            expectAll(clients, "ACCUSE Samantha", "CASE_SOLVED");
+            if (save) {
+                expectAll(clients, "SAVE", "SAVE_QUEUED");
+            }
+            expectAll(clients, "QUIT", "BYE");
+            return liveThreads;
+        } finally {
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    //Sends a command to every client, then checks each answer starts with the expected event
+    private static void expectAll(List<Client> clients, String command, String expected) throws IOException {
+        if (command != null) {
+            for (Client client : clients) {
+                client.send(command);
+            }
+        }
+        for (Client client : clients) {
+            List<String> answer = client.read();
+            boolean found = false;
+            for (String line : answer) {
+                if (line.startsWith(expected + "|")) found = true;
+            }
+            if (!found) {
+                throw new IOException("Expected " + expected + " after " + command + " but got " + answer);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the phases of starting the game
+ *
+ * Phases may run on different threads at the same time, each one is kept with when it started and
+ * ended relative to the JVM starting. Milestones such as the first frame are single points in time.
+ */
+public class BootTimer {
+    private final long originNanos;
+    //time the JVM spent before this timer was made, i.e. before main ran
+    private final long jvmMillis;
+    private final List<Phase> phases = new ArrayList<>();
+
+    public BootTimer() {
+        originNanos = System.nanoTime();
+        jvmMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    //Runs a phase on the calling thread and records how long it took
+    public <T> T time(String phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            add(new Phase(phase, start, System.nanoTime(), Thread.currentThread().getName()));
+        }
+    }
+
+    public void run(String phase, Runnable work) {
+        time(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    //Records a point in time, e.g. the first frame on screen
+    public void mark(String milestone) {
+        long now = System.nanoTime();
+        add(new Phase(milestone, now, now, Thread.currentThread().getName()));
+    }
+
+    //Milliseconds since the JVM started
+    public long sinceStartMillis() {
+        return jvmMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    }
+
+    //Milliseconds from the JVM starting to a milestone, or -1 if it hasn't happened
+    public synchronized long millisTo(String milestone) {
+        for (Phase p : phases) {
+            if (p.name.equals(milestone)) return jvmMillis + TimeUnit.NANOSECONDS.toMillis(p.end - originNanos);
+        }
+        return -1;
+    }
+
+    private synchronized void add(Phase phase) {
+        phases.add(phase);
+    }
+
+    //Logs every phase in the order they started
+    public synchronized void report() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(p -> p.start));
+        Log.info("BOOT", "jvm start to main: {}ms", jvmMillis);
+        for (Phase p : sorted) {
+            long at = jvmMillis + TimeUnit.NANOSECONDS.toMillis(p.end - originNanos);
+            if (p.start == p.end) {
+                Log.info("BOOT", "{} at {}ms", p.name, at);
+            } else {
+                Log.info("BOOT", () -> String.format("%s took %.1fms, done at %dms on %s",
+                        p.name, (p.end - p.start) / 1e6, at, p.thread));
+            }
+        }
+    }
+
+    private static final class Phase {
+        final String name;
+        final long start;
+        final long end;
+        final String thread;
+
+        Phase(String name, long start, long end, String thread) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Finds every occurrence of a fixed set of keywords in a text in one pass (Aho-Corasick)
+ *
+ * The keywords are compiled into a trie with failure links up front, after which matching costs
+ * one step per character of the text no matter how many keywords there are. Matching ignores case.
+ * The compiled matcher is immutable and safe to share between threads.
+ */
+public final class KeywordMatcher {
+
+    //Per node: sorted child characters and the node each one leads to
+    private final char[][] childChars;
+    private final int[][] childNodes;
+    //Per node: the longest proper suffix that is also in the trie
+    private final int[] fail;
+    //Per node: keywords ending exactly here, and the nearest node down the fail chain that ends keywords
+    private final int[][] outputs;
+    private final int[] outputLink;
+    private final int keywordCount;
+
+    public KeywordMatcher(List<String> keywords) {
+        this.keywordCount = keywords.size();
+
+        //Build the trie with maps, then freeze it into arrays
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        children.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k).toLowerCase();
+            if (keyword.isEmpty()) continue;
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = children.get(node).get(keyword.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(keyword.charAt(i), next);
+                    children.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            ends.get(node).add(k);
+        }
+
+        int size = children.size();
+        childChars = new char[size][];
+        childNodes = new int[size][];
+        outputs = new int[size][];
+        for (int n = 0; n < size; n++) {
+            TreeMap<Character, Integer> map = children.get(n);
+            childChars[n] = new char[map.size()];
+            childNodes[n] = new int[map.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : map.entrySet()) {
+                childChars[n][i] = e.getKey();
+                childNodes[n][i] = e.getValue();
+                i++;
+            }
+            outputs[n] = ends.get(n).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        //Breadth first so a node's fail target is always finished before the node itself
+        fail = new int[size];
+        outputLink = new int[size];
+        outputLink[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : childNodes[0]) {
+            fail[child] = 0;
+            outputLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < childChars[node].length; i++) {
+                char c = childChars[node][i];
+                int child = childNodes[node][i];
+                int f = fail[node];
+                int target;
+                while ((target = step(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = target < 0 ? 0 : target;
+                int failNode = fail[child];
+                outputLink[child] = outputs[failNode].length > 0 ? failNode : outputLink[failNode];
+                queue.add(child);
+            }
+        }
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    //Reports the index of every keyword found in the text, once per occurrence
+    public void match(CharSequence text, IntConsumer onMatch) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(node, c)) < 0 && node != 0) {
+                node = fail[node];
+            }
+            node = next < 0 ? 0 : next;
+
+            for (int out = outputs[node].length > 0 ? node : outputLink[node]; out >= 0; out = outputLink[out]) {
+                for (int keyword : outputs[out]) {
+                    onMatch.accept(keyword);
+                }
+            }
+        }
+    }
+
+    //The child of a node for a character, or -1
+    private int step(int node, char c) {
+        char[] chars = childChars[node];
+        int lo = 0;
+        int hi = chars.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (chars[mid] < c) lo = mid + 1;
+            else if (chars[mid] > c) hi = mid - 1;
+            else return childNodes[node][mid];
+        }
+        return -1;
+    }
+}
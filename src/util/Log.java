@@ -0,0 +1,233 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Small levelled logging facade for the game's hot paths
+ *
+ * Callers hand over a message template and its arguments (or a Supplier), and the text is only
+ * built if the level is enabled. Records go into a fixed-size lock-free ring buffer and a background
+ * thread formats and prints them, so logging never waits on stdout. If the buffer is full the record
+ * is dropped and counted rather than blocking the game.
+ *
+ * Templates use {} for each argument, e.g. Log.debug("DB", "Saved {} in {}ms", name, millis).
+ * The level comes from the detective.log.level system property and defaults to INFO.
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int CAPACITY = 8192; //power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private static final AtomicReferenceArray<Record> slots = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile long head;
+    private static long droppedReported; //writer thread only
+    private static volatile int threshold = parseLevel(System.getProperty("detective.log.level", "INFO")).ordinal();
+    private static final Thread writer = startWriter();
+
+    private Log() {
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() >= threshold;
+    }
+
+    //Records that couldn't be logged because the buffer was full
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    //DEBUG
+    public static void debug(String tag, String message) {
+        if (Level.DEBUG.ordinal() >= threshold) publish(Level.DEBUG, tag, message, null, null, null, null, null);
+    }
+    public static void debug(String tag, String template, Object a) {
+        if (Level.DEBUG.ordinal() >= threshold) publish(Level.DEBUG, tag, template, a, null, null, null, null);
+    }
+    public static void debug(String tag, String template, Object a, Object b) {
+        if (Level.DEBUG.ordinal() >= threshold) publish(Level.DEBUG, tag, template, a, b, null, null, null);
+    }
+    public static void debug(String tag, String template, Object a, Object b, Object c) {
+        if (Level.DEBUG.ordinal() >= threshold) publish(Level.DEBUG, tag, template, a, b, c, null, null);
+    }
+    public static void debug(String tag, Supplier<String> message) {
+        if (Level.DEBUG.ordinal() >= threshold) publish(Level.DEBUG, tag, null, null, null, null, message, null);
+    }
+
+    //INFO
+    public static void info(String tag, String message) {
+        if (Level.INFO.ordinal() >= threshold) publish(Level.INFO, tag, message, null, null, null, null, null);
+    }
+    public static void info(String tag, String template, Object a) {
+        if (Level.INFO.ordinal() >= threshold) publish(Level.INFO, tag, template, a, null, null, null, null);
+    }
+    public static void info(String tag, String template, Object a, Object b) {
+        if (Level.INFO.ordinal() >= threshold) publish(Level.INFO, tag, template, a, b, null, null, null);
+    }
+    public static void info(String tag, String template, Object a, Object b, Object c) {
+        if (Level.INFO.ordinal() >= threshold) publish(Level.INFO, tag, template, a, b, c, null, null);
+    }
+    public static void info(String tag, Supplier<String> message) {
+        if (Level.INFO.ordinal() >= threshold) publish(Level.INFO, tag, null, null, null, null, message, null);
+    }
+
+    //WARN
+    public static void warn(String tag, String message) {
+        if (Level.WARN.ordinal() >= threshold) publish(Level.WARN, tag, message, null, null, null, null, null);
+    }
+    public static void warn(String tag, String template, Object a) {
+        if (Level.WARN.ordinal() >= threshold) publish(Level.WARN, tag, template, a, null, null, null, null);
+    }
+    public static void warn(String tag, String template, Object a, Object b) {
+        if (Level.WARN.ordinal() >= threshold) publish(Level.WARN, tag, template, a, b, null, null, null);
+    }
+
+    //ERROR
+    public static void error(String tag, String message) {
+        if (Level.ERROR.ordinal() >= threshold) publish(Level.ERROR, tag, message, null, null, null, null, null);
+    }
+    public static void error(String tag, String template, Object a) {
+        if (Level.ERROR.ordinal() >= threshold) publish(Level.ERROR, tag, template, a, null, null, null, null);
+    }
+    public static void error(String tag, String template, Object a, Object b) {
+        if (Level.ERROR.ordinal() >= threshold) publish(Level.ERROR, tag, template, a, b, null, null, null);
+    }
+    public static void error(String tag, String message, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold) publish(Level.ERROR, tag, message, null, null, null, null, error);
+    }
+
+    //Claims a slot with a CAS on the tail and publishes the record into it
+    //The writer thread treats an empty slot as "not published yet" and waits for it
+    private static void publish(Level level, String tag, String template, Object a, Object b, Object c,
+                                Supplier<String> supplier, Throwable error) {
+        Record record = new Record(level, tag, template, a, b, c, supplier, error);
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        slots.set((int) (t & MASK), record);
+    }
+
+    private static Thread startWriter() {
+        Thread t = new Thread(Log::drainLoop, "log-writer");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::drain, "log-flush"));
+        return t;
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    //Prints every published record, returns how many were printed
+    //Only the writer thread (or the shutdown hook once the game is stopping) calls this
+    private static synchronized int drain() {
+        int count = 0;
+        long h = head;
+        boolean wroteOut = false;
+        boolean wroteErr = false;
+        while (h < tail.get()) {
+            int index = (int) (h & MASK);
+            Record record = slots.get(index);
+            if (record == null) {
+                break; //claimed but not published yet
+            }
+            slots.set(index, null);
+            h++;
+            head = h;
+
+            boolean isError = record.level.ordinal() >= Level.WARN.ordinal();
+            PrintStream out = isError ? System.err : System.out;
+            out.println(record.format());
+            if (record.error != null) {
+                record.error.printStackTrace(out);
+            }
+            wroteOut |= !isError;
+            wroteErr |= isError;
+            count++;
+        }
+        long lost = dropped.get() - droppedReported;
+        if (lost > 0) {
+            droppedReported += lost;
+            System.err.println("[LOG] " + lost + " log records dropped, buffer full");
+            wroteErr = true;
+        }
+        if (wroteOut) System.out.flush();
+        if (wroteErr) System.err.flush();
+        return count;
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    private static final class Record {
+        final Level level;
+        final String tag;
+        final String template;
+        final Object a, b, c;
+        final Supplier<String> supplier;
+        final Throwable error;
+
+        Record(Level level, String tag, String template, Object a, Object b, Object c,
+               Supplier<String> supplier, Throwable error) {
+            this.level = level;
+            this.tag = tag;
+            this.template = template;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.supplier = supplier;
+            this.error = error;
+        }
+
+        //Builds the line on the writer thread, filling {} placeholders in order
+        String format() {
+            StringBuilder sb = new StringBuilder(64);
+            sb.append('[').append(tag).append("] ");
+            if (supplier != null) {
+                sb.append(supplier.get());
+                return sb.toString();
+            }
+            Object[] args = {a, b, c};
+            int argIndex = 0;
+            int from = 0;
+            int at;
+            while ((at = template.indexOf("{}", from)) >= 0 && argIndex < args.length) {
+                sb.append(template, from, at).append(args[argIndex++]);
+                from = at + 2;
+            }
+            sb.append(template, from, template.length());
+            return sb.toString();
+        }
+    }
+}